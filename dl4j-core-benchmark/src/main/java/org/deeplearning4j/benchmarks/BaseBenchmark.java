@@ -4,13 +4,27 @@ import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.javacpp.Pointer;
+import org.apache.commons.io.FilenameUtils;
+import org.deeplearning4j.datasets.InstrumentedDataSetIterator;
+import org.deeplearning4j.datasets.SyntheticDataSetIterator;
 import org.deeplearning4j.datasets.iterator.AsyncDataSetIterator;
 import org.deeplearning4j.datasets.iterator.MultipleEpochsIterator;
 import org.deeplearning4j.listeners.BenchmarkListener;
+import org.deeplearning4j.listeners.MemoryListener;
+import org.deeplearning4j.listeners.AutotuneReport;
 import org.deeplearning4j.listeners.BenchmarkReport;
+import org.deeplearning4j.listeners.EtlStats;
+import org.deeplearning4j.listeners.LatencyHistogram;
+import org.deeplearning4j.listeners.LayerProfileReport;
+import org.deeplearning4j.listeners.ResultsStore;
+import org.deeplearning4j.listeners.SteadyStateDetector;
+import org.deeplearning4j.listeners.TokenStats;
 import org.deeplearning4j.models.ModelSelector;
 import org.deeplearning4j.models.ModelType;
+import org.deeplearning4j.models.SyntheticInputs;
 import org.deeplearning4j.models.TestableModel;
+import org.deeplearning4j.models.rnn.W2VSentiment;
 import org.deeplearning4j.nn.api.Model;
 import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
@@ -22,7 +36,9 @@ import org.nd4j.linalg.dataset.api.DataSet;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.nd4j.linalg.factory.Nd4j;
 
-import java.lang.reflect.Method;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 //import org.nd4j.jita.conf.CudaEnvironment;
@@ -32,7 +48,7 @@ import java.util.Map;
  */
 @Slf4j
 public abstract class BaseBenchmark implements Benchmarkable {
-    @Parameter(names = {"-ng","--numGPUs"}, description = "How many workers to use for multiple GPUs.")
+    @Parameter(names = {"-ng","--numGPUs"}, description = "How many ParallelWrapper workers to use (GPUs, or CPU workers on the native backend).")
     protected int numGPUs = 0;
     @Parameter(names = {"-dcache","--deviceCache"}, description = "Set CUDA device cache.")
     protected long deviceCache = 6L;
@@ -49,10 +65,64 @@ public abstract class BaseBenchmark implements Benchmarkable {
 
     @Parameter(names = {"-avg","--averagingFrequency"}, description = "Averaging frequency")
     protected int averagingFrequency = 5;
+    @Parameter(names = {"-pf","--prefetchBuffer"}, description = "Minibatches prefetched ahead of training (per worker with ParallelWrapper)")
+    protected int prefetchBuffer = 4;
+    @Parameter(names = {"-au","--averageUpdaters"}, description = "Average updater state along with parameters in ParallelWrapper")
+    protected boolean averageUpdaters = false;
+    @Parameter(names = {"-la","--legacyAveraging"}, description = "Use ParallelWrapper's legacy averaging")
+    protected boolean legacyAveraging = false;
+
+    @Parameter(names = {"-wcv","--warmupCV"}, description = "Warmup ends once the coefficient of variation of recent iteration times drops below this value")
+    protected double warmupCV = SteadyStateDetector.DEFAULT_CV_THRESHOLD;
+    @Parameter(names = {"-wwin","--warmupWindow"}, description = "Number of recent iterations used to detect the end of warmup")
+    protected int warmupWindow = SteadyStateDetector.DEFAULT_WINDOW;
+    @Parameter(names = {"-wmax","--maxWarmupIterations"}, description = "Start recording after this many iterations even if iteration times have not settled")
+    protected int maxWarmupIterations = SteadyStateDetector.DEFAULT_MAX_ITERATIONS;
+
+    @Parameter(names = {"-pl","--profileLayers"}, description = "Time forward/backward of every layer (or graph vertex) after the benchmark")
+    protected boolean profileLayers = false;
+    @Parameter(names = {"-pli","--profileIterations"}, description = "Number of minibatches used for layer profiling")
+    protected int profileIterations = 20;
+
+    @Parameter(names = {"-memf","--memorySampleFrequency"}, description = "Sample heap, off-heap, RSS and workspace memory every this many iterations. 0 disables")
+    protected int memorySampleFrequency = 10;
+
+    @Parameter(names = {"-rd","--resultsDir"}, description = "Directory results are appended to as JSON lines. Empty to disable.")
+    protected String resultsDir = ResultsStore.DEFAULT_DIR;
+
+    @Parameter(names = {"-syn","--synthetic"}, description = "Train on preallocated random inputs instead of the dataset, to measure compute without I/O or ETL")
+    protected boolean synthetic = false;
+    @Parameter(names = {"-synb","--syntheticBatches"}, description = "Minibatches per epoch with --synthetic")
+    protected int syntheticBatches = 500;
+    @Parameter(names = {"-synbs","--syntheticBatchSize"}, description = "Minibatch size with --synthetic for benchmarks without a batch size of their own (W2VSentiment)")
+    protected int syntheticBatchSize = 64;
+
+    protected static final String SYNTHETIC = "synthetic";
+
+    @Parameter(names = {"-at","--autotune"}, description = "Search the throughput-optimal training batch size on synthetic inputs of the benchmark's shape instead of benchmarking")
+    protected boolean autotune = false;
+    @Parameter(names = {"-atmin","--autotuneMinBatch"}, description = "Smallest batch size tried by autotune")
+    protected int autotuneMinBatch = 1;
+    @Parameter(names = {"-atmax","--autotuneMaxBatch"}, description = "Largest batch size tried by autotune")
+    protected int autotuneMaxBatch = 1024;
+    @Parameter(names = {"-atgrowth","--autotuneGrowth"}, description = "Factor between consecutive batch sizes tried by autotune")
+    protected double autotuneGrowth = 2.0;
+    @Parameter(names = {"-atgain","--autotuneMinGain"}, description = "Autotune stops once throughput improves by less than this fraction twice in a row")
+    protected double autotuneMinGain = 0.05;
+    @Parameter(names = {"-ati","--autotuneIterations"}, description = "Timed fit() calls per batch size during autotune")
+    protected int autotuneIterations = 10;
+    @Parameter(names = {"-atwi","--autotuneWarmupIterations"}, description = "Untimed fit() calls per batch size during autotune")
+    protected int autotuneWarmupIterations = 3;
+    @Parameter(names = {"-atmem","--autotuneMemoryFraction"}, description = "Autotune stops once heap or off-heap usage exceeds this fraction of its limit")
+    protected double autotuneMemoryFraction = 0.9;
 
     protected int listenerFreq = 10;
     protected int iterations = 1;
     protected static Map<ModelType,TestableModel> networks;
+    // set by benchmarks on variable-length sequences: padding of the training minibatches, reported per model
+    protected TokenStats tokenStats;
+    // reports of every model benchmarked so far, for subclasses that compare several runs
+    protected final List<BenchmarkReport> reports = new ArrayList<>();
 
 
     @Override
@@ -100,51 +170,85 @@ public abstract class BaseBenchmark implements Benchmarkable {
     public void benchmarkCNN(int height, int width, int channels, int numLabels, int batchSize, int seed, String datasetName, DataSetIterator iter, ModelType modelType, int numGPUs) throws Exception {
         log.info("Building models for "+modelType+"....");
         networks = ModelSelector.select(modelType, height, width, channels, numLabels, seed, iterations);
-        String dimensions = datasetName+" "+batchSize+"x"+channels+"x"+height+"x"+width;
+        String dimensions = (synthetic ? SYNTHETIC : datasetName)+" "+batchSize+"x"+channels+"x"+height+"x"+width;
 
-        benchmark(dimensions, iter, numGPUs);
+        if (autotune) {
+            autotune(new int[]{channels, height, width}, numLabels, seed);
+            return;
+        }
+        benchmark(dimensions, iter, numGPUs, new int[]{channels, height, width}, numLabels, batchSize);
     }
 
-    public void benchmarkRNN(String datasetName, DataSetIterator iter, ModelType modelType, int numGPUs) throws Exception {
+    public void benchmarkRNN(int seed, String datasetName, DataSetIterator iter, ModelType modelType, int numGPUs) throws Exception {
         log.info("Building models for " + modelType + "....");
-        networks = ModelSelector.select(modelType, 0, 0, 0, 0, 0, 0);
-        String dimensions = datasetName;
+        benchmarkRNN(seed, datasetName, iter, ModelSelector.select(modelType, 0, 0, 0, 0, seed, 0), numGPUs);
+    }
 
-        benchmark(dimensions, iter, numGPUs);
+    /**
+     * Benchmark RNN models built by the caller, e.g. with weights that depend on the dataset.
+     */
+    public void benchmarkRNN(int seed, String datasetName, DataSetIterator iter, Map<ModelType, TestableModel> models, int numGPUs) throws Exception {
+        networks = models;
+        String dimensions = synthetic ? SYNTHETIC + " " + syntheticBatchSize : datasetName;
+
+        if (autotune) {
+            autotune(null, 0, seed);
+            return;
+        }
+        benchmark(dimensions, iter, numGPUs, null, W2VSentiment.NUM_LABELS, syntheticBatchSize);
     }
 
     public void benchmarkMLP(int height, int width, int channels, int numLabels, int batchSize, int seed, String datasetName, DataSetIterator iter, ModelType modelType, int numGPUs) throws Exception {
         log.info("Building models for "+modelType+"....");
         networks = ModelSelector.select(modelType, height, width, channels, numLabels, seed, iterations);
-        String dimensions = datasetName+" "+batchSize+"x"+channels+"x"+height+"x"+width;
+        String dimensions = (synthetic ? SYNTHETIC : datasetName)+" "+batchSize+"x"+channels+"x"+height+"x"+width;
 
-        benchmark(dimensions, iter, numGPUs);
+        if (autotune) {
+            autotune(new int[]{channels, height, width}, numLabels, seed);
+            return;
+        }
+        benchmark(dimensions, iter, numGPUs, new int[]{channels, height, width}, numLabels, batchSize);
     }
 
-    private void benchmark(String description, DataSetIterator iter, int numGPUs) throws Exception {
+    /**
+     * @param iter      dataset iterator; ignored (and may be null) with --synthetic
+     * @param shape     {channels, height, width} of synthetic inputs, or null for each model's default shape
+     * @param numLabels number of classes of synthetic labels
+     * @param batchSize minibatch size of synthetic inputs
+     */
+    private void benchmark(String description, DataSetIterator iter, int numGPUs, int[] shape, int numLabels, int batchSize) throws Exception {
         long totalTime = System.currentTimeMillis();
 
-        if (maxIteration != -1){
-            iter = new MultipleEpochsIterator(iter, maxIteration);
-        }
-
         log.info("========================================");
         log.info("===== Benchmarking selected models =====");
         log.info("========================================");
 
         for (Map.Entry<ModelType, TestableModel> net : networks.entrySet()) {
+            DataSetIterator modelIter = iter;
+            if (synthetic) {
+                // inputs are shaped per model (e.g. LeNet takes flattened images), so every model gets its own iterator
+                int[] s = shape != null ? shape : SyntheticInputs.defaultShape(net.getKey());
+                modelIter = new SyntheticDataSetIterator(net.getKey(), batchSize, s[0], s[1], s[2], numLabels, syntheticBatches);
+            }
+            if (maxIteration != -1){
+                modelIter = new MultipleEpochsIterator(modelIter, maxIteration);
+            }
 
             log.info("Selected: "+net.getKey().toString()+" "+description);
             Model model = net.getValue().init();
-//            BenchmarkReport report = new BenchmarkReport(net.getKey().toString(), description);
-            BenchmarkReport report = BenchmarkReport.getInstance();
-            report.setName(net.getKey().toString());
-            report.setDescription(description);
+            BenchmarkReport report = new BenchmarkReport(net.getKey().toString(), description);
             report.setModel(model);
+            report.setBatchSize(modelIter.batch());
+            report.setWorkers(numGPUs);
 
 //            model.setListeners(new ScoreIterationListener(listenerFreq), new BenchmarkListener(report));
 //            model.setListeners(new PerformanceListener(listenerFreq), new BenchmarkListener(report));
-            model.setListeners(new PerformanceListener(1, false), new BenchmarkListener(report));
+            // the memory listener goes before BenchmarkListener, which subtracts the sampling time of the iteration
+            BenchmarkListener benchmarkListener = new BenchmarkListener(report, warmupWindow, warmupCV, maxWarmupIterations);
+            if (memorySampleFrequency > 0)
+                model.setListeners(new PerformanceListener(1, false), new MemoryListener(report, memorySampleFrequency), benchmarkListener);
+            else
+                model.setListeners(new PerformanceListener(1, false), benchmarkListener);
 
             if (model instanceof ComputationGraph) {
                 log.info("Network params: {}", model.params().lengthLong());
@@ -154,31 +258,35 @@ public abstract class BaseBenchmark implements Benchmarkable {
                 log.info("Updater params: {}", ((MultiLayerNetwork) model).getUpdater().getStateViewArray().lengthLong());
             }
 
+            // before the prefetch thread starts, so minibatches it builds ahead still count
+            if (tokenStats != null)
+                tokenStats.reset();
+
+            EtlStats etl = new EtlStats();
+            report.setEtl(etl);
+
             long epochTime = System.currentTimeMillis();
             log.info("===== Benchmarking training iteration =====");
             if (numGPUs == 0 || numGPUs == 1) { // cpu mode or single gpu mode
+                // the instrumented iterator builds the prefetch queue itself, so fit() does not wrap it again
+                DataSetIterator trainIter = InstrumentedDataSetIterator.instrument(modelIter, etl, prefetchBuffer);
                 if (model instanceof MultiLayerNetwork) {
-                    ((MultiLayerNetwork) model).fit(iter);
+                    ((MultiLayerNetwork) model).fit(trainIter);
                 }else if (model instanceof ComputationGraph) {
-                    ((ComputationGraph) model).fit(iter);
+                    ((ComputationGraph) model).fit(trainIter);
                 }
             } else { // multiple gpu mode
                 numGPUs = (numGPUs == -1) ? Nd4j.getAffinityManager().getNumberOfDevices() : numGPUs;
-                ParallelWrapper pw = new ParallelWrapper.Builder<>(model)
-                        .prefetchBuffer(4)
-                        .reportScoreAfterAveraging(true)
-                        .averagingFrequency(averagingFrequency)
-                        .useLegacyAveraging(false)
-                        .useMQ(true)
-                        .workers(numGPUs)
-                        .averageUpdaters(false)
-                        .build();
-
-                pw.fit(iter);
+                ParallelWrapper pw = parallelWrapper(model, numGPUs, averagingFrequency, prefetchBuffer, averageUpdaters, legacyAveraging);
+
+                // ParallelWrapper keeps its own per-worker prefetch queue, only production is instrumented
+                pw.fit(InstrumentedDataSetIterator.instrumentProducer(modelIter, etl));
                 pw.close();
             }
             epochTime = System.currentTimeMillis() - epochTime;
             report.setEpochTime(epochTime);
+            if (tokenStats != null)
+                report.setTokens(tokenStats.snapshot());
 
 
             log.info("===== Benchmarking forward/backward pass =====");
@@ -187,7 +295,7 @@ public abstract class BaseBenchmark implements Benchmarkable {
                 and backward. This is consistent with benchmarks seen in the wild like this code:
                 https://github.com/jcjohnson/cnn-benchmarks/blob/master/cnn_benchmark.lua
              */
-            calcFwdBwdTime(model, iter, report);
+            calcFwdBwdTime(model, modelIter, report);
 
             log.info("=============================");
             log.info("===== Benchmark Results =====");
@@ -195,56 +303,180 @@ public abstract class BaseBenchmark implements Benchmarkable {
 
             System.out.println(report.getModelSummary());
             System.out.println(report.toString());
+
+            reports.add(report);
+            if (!resultsDir.isEmpty())
+                new ResultsStore(new File(resultsDir)).append(report);
+
+            if (profileLayers) {
+                log.info("===== Profiling layers =====");
+                LayerProfileReport layerReport = LayerProfiler.profile(net.getKey().toString(), model, modelIter, profileIterations);
+                File csv = new File(FilenameUtils.concat(System.getProperty("java.io.tmpdir"), "dl4j_layers_" + net.getKey().toString() + ".csv"));
+                layerReport.writeCsv(csv);
+                log.info("Layer profile written to " + csv.getAbsolutePath());
+
+                System.out.println(layerReport.toString());
+            }
+        }
+    }
+
+    /**
+     * Short timed fit() trials over a geometric range of batch sizes on synthetic inputs, for every selected model.
+     * The sweep stops at autotuneMaxBatch, when throughput improves by less than autotuneMinGain twice in a row,
+     * when heap or off-heap usage passes autotuneMemoryFraction of its limit, or when a batch fails (e.g. OOM).
+     *
+     * @param shape {channels, height, width} per example, or null for each model's default shape
+     */
+    private void autotune(int[] shape, int numLabels, int seed) throws Exception {
+        log.info("========================================");
+        log.info("===== Autotuning training batch size ====");
+        log.info("========================================");
+
+        for (Map.Entry<ModelType, TestableModel> net : networks.entrySet()) {
+            ModelType type = net.getKey();
+            int[] s = shape != null ? shape : SyntheticInputs.defaultShape(type);
+            int labels = SyntheticInputs.isSentiment(type) ? W2VSentiment.NUM_LABELS : numLabels;
+            Model model = net.getValue().init();
+            AutotuneReport report = new AutotuneReport(type.toString(), "training, synthetic " + s[0] + "x" + s[1] + "x" + s[2]);
+
+            double best = 0.0;
+            int flat = 0;
+            int batchSize = Math.max(1, autotuneMinBatch);
+            while (batchSize <= autotuneMaxBatch) {
+                try {
+                    DataSet ds = SyntheticInputs.create(type, batchSize, s[0], s[1], s[2], labels, seed);
+                    for (int i = 0; i < autotuneWarmupIterations; i++)
+                        fit(model, ds);
+
+                    LatencyHistogram latency = new LatencyHistogram();
+                    long totalTime = System.nanoTime();
+                    for (int i = 0; i < autotuneIterations; i++) {
+                        long time = System.nanoTime();
+                        fit(model, ds);
+                        latency.record(System.nanoTime() - time);
+                    }
+                    totalTime = System.nanoTime() - totalTime;
+                    report.addResult(batchSize, totalTime, latency);
+                } catch (Exception | OutOfMemoryError e) {
+                    log.warn("Stopping autotune for " + type + " at batch size " + batchSize + ": " + e.getMessage());
+                    report.setStopReason("batch size " + batchSize + " failed: " + e.getClass().getSimpleName());
+                    break;
+                }
+
+                double samplesSec = report.results().get(report.results().size() - 1).samplesPerSec();
+                log.info("Batch size {}: {} samples/sec", batchSize, samplesSec);
+                flat = samplesSec < best * (1.0 + autotuneMinGain) ? flat + 1 : 0;
+                best = Math.max(best, samplesSec);
+                if (flat >= 2) {
+                    log.info("Throughput flattened, stopping autotune for " + type);
+                    report.setStopReason("throughput flattened");
+                    break;
+                }
+                if (memoryLimitReached()) {
+                    log.info("Memory limit reached, stopping autotune for " + type);
+                    report.setStopReason("memory limit reached");
+                    break;
+                }
+                batchSize = Math.max(batchSize + 1, (int) Math.round(batchSize * autotuneGrowth));
+            }
+
+            log.info("=============================");
+            log.info("===== Autotune Results ======");
+            log.info("=============================");
+
+            System.out.println(report.toString());
         }
     }
 
+    private boolean memoryLimitReached() {
+        Runtime rt = Runtime.getRuntime();
+        double heap = (double) (rt.totalMemory() - rt.freeMemory()) / rt.maxMemory();
+        long maxOffHeap = Pointer.maxBytes();
+        double offHeap = maxOffHeap > 0 ? (double) Pointer.totalBytes() / maxOffHeap : 0.0;
+        return heap > autotuneMemoryFraction || offHeap > autotuneMemoryFraction;
+    }
+
+    protected static void fit(Model model, DataSet ds) {
+        if (model instanceof MultiLayerNetwork) {
+            ((MultiLayerNetwork) model).fit(ds);
+        } else if (model instanceof ComputationGraph) {
+            ((ComputationGraph) model).fit(ds);
+        } else {
+            throw new UnsupportedOperationException("Unsupported model type: " + model.getClass().getName());
+        }
+    }
+
+    protected static ParallelWrapper parallelWrapper(Model model, int workers, int averagingFrequency, int prefetchBuffer,
+                                                     boolean averageUpdaters, boolean legacyAveraging) {
+        return new ParallelWrapper.Builder<>(model)
+                .prefetchBuffer(prefetchBuffer)
+                .reportScoreAfterAveraging(true)
+                .averagingFrequency(averagingFrequency)
+                .useLegacyAveraging(legacyAveraging)
+                .useMQ(true)
+                .workers(workers)
+                .averageUpdaters(averageUpdaters)
+                .build();
+    }
+
+    /**
+     * Inference forward pass (no labels, no training workspace), as used when serving a model.
+     */
+    protected static INDArray output(Model model, INDArray input) {
+        if (model instanceof MultiLayerNetwork) {
+            return ((MultiLayerNetwork) model).output(input, false);
+        } else if (model instanceof ComputationGraph) {
+            return ((ComputationGraph) model).output(false, input)[0];
+        }
+        throw new UnsupportedOperationException("Unsupported model type: " + model.getClass().getName());
+    }
+
     private void calcFwdBwdTime(Model model, DataSetIterator iter, BenchmarkReport report) throws Exception {
         iter.reset(); // prevents NPE
         AsyncDataSetIterator adsi = new AsyncDataSetIterator(iter, 8, true);
+        TrainingPhases phases = new TrainingPhases(model);
         long totalForward = 0;
         long totalBackward = 0;
+        long totalUpdater = 0;
         long nIterations = 0;
 
+        long etlTime = System.nanoTime();
         while(adsi.hasNext()) {
             DataSet ds = adsi.next();
+            report.recordEtlNanos(System.nanoTime() - etlTime);
             INDArray input = ds.getFeatures();
             INDArray labels = ds.getLabels();
             try (MemoryWorkspace workspace = Nd4j.getWorkspaceManager().getAndActivateWorkspace(ComputationGraph.workspaceExternal)) {
                 // forward
-                long forwardTime = System.currentTimeMillis();
-                if (model instanceof MultiLayerNetwork) {
-                    ((MultiLayerNetwork) model).setInput(input);
-                    ((MultiLayerNetwork) model).setLabels(labels);
-                    ((MultiLayerNetwork) model).feedForward();
-                } else if (model instanceof ComputationGraph) {
-                    ((ComputationGraph) model).setInput(0, input);
-                    ((ComputationGraph) model).setLabel(0, labels);
-                    ((ComputationGraph) model).feedForward();
-                }
-                forwardTime = System.currentTimeMillis() - forwardTime;
+                long forwardTime = System.nanoTime();
+                phases.forward(input, labels);
+                forwardTime = System.nanoTime() - forwardTime;
                 totalForward += forwardTime;
+                report.recordFeedForwardNanos(forwardTime);
 
                 // backward
-                long backwardTime = System.currentTimeMillis();
-                if (model instanceof MultiLayerNetwork) {
-                    Method m = MultiLayerNetwork.class.getDeclaredMethod("backprop"); // requires reflection
-                    m.setAccessible(true);
-                    m.invoke(model);
-                } else if (model instanceof ComputationGraph) {
-                    Method m = ComputationGraph.class.getDeclaredMethod("calcBackpropGradients", boolean.class, INDArray[].class);
-                    m.setAccessible(true);
-                    m.invoke(model, false, new INDArray[0]);
-                }
-
-                backwardTime = System.currentTimeMillis() - backwardTime;
+                long backwardTime = System.nanoTime();
+                phases.backward();
+                backwardTime = System.nanoTime() - backwardTime;
                 totalBackward += backwardTime;
+                report.recordBackpropNanos(backwardTime);
+
+                // gradient normalization + updater + parameter update
+                long updaterTime = System.nanoTime();
+                phases.update(input.size(0));
+                updaterTime = System.nanoTime() - updaterTime;
+                totalUpdater += updaterTime;
+                report.recordUpdaterNanos(updaterTime);
 
                 nIterations += 1;
                 if (nIterations % 100 == 0) log.info("Completed " + nIterations + " iterations");
             }
+            etlTime = System.nanoTime();
         }
 
-        report.setAvgFeedForward((double) totalForward / (double) nIterations);
-        report.setAvgBackprop((double) totalBackward / (double) nIterations);
+        // totals are in nanoseconds, report averages in milliseconds
+        report.setAvgFeedForward((double) totalForward / 1e6 / (double) nIterations);
+        report.setAvgBackprop((double) totalBackward / 1e6 / (double) nIterations);
+        report.setAvgUpdater((double) totalUpdater / 1e6 / (double) nIterations);
     }
 }
@@ -0,0 +1,210 @@
+package org.deeplearning4j.benchmarks;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Model;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micro-batching stage in front of model.output().
+ *
+ * Callers submit single examples (minibatch dimension of 1) and get a Future for their row of the output.
+ * A single worker thread takes the first queued request, keeps collecting requests until either maxBatchSize
+ * examples are queued or maxWaitNanos have passed since the first one arrived, runs one output() call on the
+ * concatenated batch and scatters the rows back to the callers. With maxWaitNanos = 0 the worker only
+ * coalesces requests that are already waiting.
+ *
+ * Only the worker thread touches the model, so a single non thread safe model instance can serve many clients.
+ */
+@Slf4j
+public class BatchingInferenceEngine implements AutoCloseable {
+
+    private final Model model;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private final AtomicLong batches = new AtomicLong(0);
+    private final AtomicLong examples = new AtomicLong(0);
+
+    public BatchingInferenceEngine(Model model, int maxBatchSize, long maxWaitNanos) {
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("maxBatchSize must be >= 1, got " + maxBatchSize);
+        this.model = model;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = Math.max(0, maxWaitNanos);
+
+        this.worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                workerLoop();
+            }
+        }, "BatchingInferenceEngine");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queue a single example for inference.
+     *
+     * @param example input with a minibatch dimension of 1
+     * @return future holding this example's row of the network output
+     */
+    public Future<INDArray> submit(INDArray example) {
+        if (!running)
+            throw new IllegalStateException("Engine has been closed");
+        Request request = new Request(example);
+        queue.add(request);
+        return request;
+    }
+
+    public long batchesExecuted() { return batches.get(); }
+
+    public long examplesExecuted() { return examples.get(); }
+
+    /**
+     * @return average batch size since the engine started; snapshot batchesExecuted/examplesExecuted for an interval
+     */
+    public double averageBatchSize() {
+        long n = batches.get();
+        return n == 0 ? 0.0 : (double) examples.get() / n;
+    }
+
+    private void workerLoop() {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+
+                // counted from when the first request was queued, not from when the worker got to it
+                long deadline = first.enqueuedNanos + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+
+                execute(batch);
+            } catch (InterruptedException e) {
+                for (Request r : batch)
+                    r.complete(null, new IllegalStateException("Engine has been closed"));
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void execute(List<Request> batch) {
+        try {
+            INDArray input;
+            if (batch.size() == 1) {
+                input = batch.get(0).input;
+            } else {
+                INDArray[] inputs = new INDArray[batch.size()];
+                for (int i = 0; i < inputs.length; i++)
+                    inputs[i] = batch.get(i).input;
+                input = Nd4j.concat(0, inputs);
+            }
+
+            INDArray out = BaseBenchmark.output(model, input);
+
+            INDArrayIndex[] idx = new INDArrayIndex[out.rank()];
+            for (int d = 1; d < idx.length; d++)
+                idx[d] = NDArrayIndex.all();
+            for (int i = 0; i < batch.size(); i++) {
+                idx[0] = NDArrayIndex.interval(i, i + 1);
+                batch.get(i).complete(out.get(idx).dup(), null);
+            }
+
+            batches.incrementAndGet();
+            examples.addAndGet(batch.size());
+        } catch (Throwable t) {
+            log.warn("Batched inference failed for {} requests", batch.size(), t);
+            for (Request r : batch)
+                r.complete(null, t);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Request r;
+        while ((r = queue.poll()) != null)
+            r.complete(null, new IllegalStateException("Engine has been closed"));
+    }
+
+    private static class Request implements Future<INDArray> {
+        private final INDArray input;
+        private final long enqueuedNanos = System.nanoTime();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile INDArray result;
+        private volatile Throwable error;
+
+        private Request(INDArray input) {
+            this.input = input;
+        }
+
+        private void complete(INDArray result, Throwable error) {
+            this.result = result;
+            this.error = error;
+            done.countDown();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) { return false; }
+
+        @Override
+        public boolean isCancelled() { return false; }
+
+        @Override
+        public boolean isDone() { return done.getCount() == 0; }
+
+        @Override
+        public INDArray get() throws InterruptedException, ExecutionException {
+            done.await();
+            return result();
+        }
+
+        @Override
+        public INDArray get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!done.await(timeout, unit))
+                throw new TimeoutException();
+            return result();
+        }
+
+        private INDArray result() throws ExecutionException {
+            if (error != null)
+                throw new ExecutionException(error);
+            return result;
+        }
+    }
+}
@@ -41,6 +41,11 @@ public class BenchmarkCifar extends BaseBenchmark {
         if(modelType == ModelType.ALL || modelType == ModelType.RNN)
             throw new UnsupportedOperationException("CIFAR-10 benchmarks are applicable to CNN models only.");
 
+        if (synthetic) {
+            benchmarkCNN(height, width, channels, numLabels, trainBatchSize, seed, datasetName, null, modelType, numGPUs);
+            return;
+        }
+
         log.info("Loading data...");
         ImageTransform flip = new FlipImageTransform(seed); // Should random flip some images but not all
         DataSetIterator cifar = new CifarDataSetIterator(trainBatchSize, numTrainExamples, new int[]{height, width, channels}, numLabels, flip, preProcess, train);
@@ -0,0 +1,171 @@
+package org.deeplearning4j.benchmarks;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.listeners.ResultsStore;
+
+import java.io.File;
+import java.text.DecimalFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares benchmark results (JSON lines written by ResultsStore) against a stored baseline and flags
+ * regressions, e.g. before upgrading DL4J.
+ *
+ * Records are matched on model, description, backend and number of workers; when a file or directory holds
+ * several records for the same key, the latest one is used. A mean latency change (and the throughput change
+ * derived from iteration latency) is flagged only if it exceeds the relative threshold AND Welch's t-test on the
+ * recorded latency distributions is significant at the 95% level. Tail latency (p99) has no per-sample data to
+ * test against, so it is flagged on a separate, larger relative threshold.
+ */
+@Slf4j
+public class BenchmarkCompare {
+
+    @Parameter(names = {"-base","--baseline"}, description = "Baseline results file or directory", required = true)
+    public static String baseline;
+    @Parameter(names = {"-cur","--current"}, description = "Current results file or directory", required = true)
+    public static String current;
+    @Parameter(names = {"-t","--threshold"}, description = "Relative change in mean latency/throughput considered a regression")
+    public static double threshold = 0.05;
+    @Parameter(names = {"-tt","--tailThreshold"}, description = "Relative change in p99 latency considered a regression")
+    public static double tailThreshold = 0.15;
+    @Parameter(names = {"-fail","--failOnRegression"}, description = "Exit with status 1 if any regression is found")
+    public static boolean failOnRegression = false;
+
+    private static final String[] PHASES = {"iteration", "feedForward", "backprop", "updater"};
+
+    // two-sided 95% critical values of Student's t for 1..30 degrees of freedom
+    private static final double[] T_CRITICAL = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+
+    private final DecimalFormat df = new DecimalFormat("#.##");
+    private int regressions = 0;
+
+    public void run(String[] args) throws Exception {
+        JCommander jcmdr = new JCommander(this);
+        try {
+            jcmdr.parse(args);
+        } catch (ParameterException e) {
+            //User provides invalid input -> print the usage info
+            jcmdr.usage();
+            try {
+                Thread.sleep(500);
+            } catch (Exception e2) {
+            }
+            System.exit(1);
+        }
+
+        Map<String, Map<String, Object>> base = latestByKey(ResultsStore.read(new File(baseline)));
+        Map<String, Map<String, Object>> cur = latestByKey(ResultsStore.read(new File(current)));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-40s %-22s %12s %12s %9s %8s  %s\n", "Benchmark", "Metric", "Baseline", "Current", "Change %", "t", "Verdict"));
+        for (Map.Entry<String, Map<String, Object>> e : cur.entrySet()) {
+            Map<String, Object> b = base.get(e.getKey());
+            if (b == null) {
+                log.info("No baseline for " + e.getKey());
+                continue;
+            }
+            compare(sb, e.getKey(), b, e.getValue());
+        }
+        System.out.println(sb.toString());
+        System.out.println(regressions + " regression(s) found");
+
+        if (failOnRegression && regressions > 0)
+            System.exit(1);
+    }
+
+    private void compare(StringBuilder sb, String key, Map<String, Object> base, Map<String, Object> cur) {
+        // throughput is batch / iteration time, so the iteration latency test decides significance
+        double tIteration = welch(base, cur, "iteration");
+        double baseThroughput = number(base, "avgSamplesSec");
+        double curThroughput = number(cur, "avgSamplesSec");
+        double throughputChange = relativeChange(baseThroughput, curThroughput);
+        boolean throughputRegressed = -throughputChange > threshold && significant(tIteration, base, cur, "iteration");
+        row(sb, key, "samples/sec", baseThroughput, curThroughput, throughputChange, tIteration, throughputRegressed,
+                throughputChange > threshold && significant(tIteration, base, cur, "iteration"));
+
+        for (String phase : PHASES) {
+            if (number(base, phase + ".count") == 0 || number(cur, phase + ".count") == 0)
+                continue;
+
+            double t = welch(base, cur, phase);
+            double baseMean = number(base, phase + ".meanMs");
+            double curMean = number(cur, phase + ".meanMs");
+            double change = relativeChange(baseMean, curMean);
+            boolean significant = significant(t, base, cur, phase);
+            row(sb, key, phase + " mean ms", baseMean, curMean, change, t, change > threshold && significant, -change > threshold && significant);
+
+            double baseP99 = number(base, phase + ".p99Ms");
+            double curP99 = number(cur, phase + ".p99Ms");
+            double p99Change = relativeChange(baseP99, curP99);
+            row(sb, key, phase + " p99 ms", baseP99, curP99, p99Change, Double.NaN, p99Change > tailThreshold, -p99Change > tailThreshold);
+        }
+    }
+
+    private void row(StringBuilder sb, String key, String metric, double base, double cur, double change, double t,
+                     boolean regressed, boolean improved) {
+        String verdict = regressed ? "REGRESSION" : (improved ? "improved" : "");
+        if (regressed)
+            regressions++;
+        sb.append(String.format("%-40s %-22s %12s %12s %9s %8s  %s\n", key, metric, df.format(base), df.format(cur),
+                df.format(100.0 * change), Double.isNaN(t) ? "" : df.format(t), verdict));
+    }
+
+    /**
+     * Welch's t statistic for the difference of mean latency of a phase, from the recorded mean, std and count.
+     */
+    private static double welch(Map<String, Object> base, Map<String, Object> cur, String phase) {
+        double n1 = number(base, phase + ".count");
+        double n2 = number(cur, phase + ".count");
+        if (n1 < 2 || n2 < 2)
+            return Double.NaN;
+        double v1 = Math.pow(number(base, phase + ".stdMs"), 2) / n1;
+        double v2 = Math.pow(number(cur, phase + ".stdMs"), 2) / n2;
+        double diff = number(cur, phase + ".meanMs") - number(base, phase + ".meanMs");
+        if (v1 + v2 == 0)
+            return diff == 0 ? 0.0 : Math.signum(diff) * Double.POSITIVE_INFINITY;
+        return diff / Math.sqrt(v1 + v2);
+    }
+
+    private static boolean significant(double t, Map<String, Object> base, Map<String, Object> cur, String phase) {
+        if (Double.isNaN(t))
+            return false;
+        double n1 = number(base, phase + ".count");
+        double n2 = number(cur, phase + ".count");
+        double v1 = Math.pow(number(base, phase + ".stdMs"), 2) / n1;
+        double v2 = Math.pow(number(cur, phase + ".stdMs"), 2) / n2;
+        // Welch-Satterthwaite degrees of freedom
+        double dof = (v1 + v2) == 0 ? n1 + n2 - 2 : Math.pow(v1 + v2, 2) / (v1 * v1 / (n1 - 1) + v2 * v2 / (n2 - 1));
+        int d = (int) Math.floor(dof);
+        double critical = d < 1 ? T_CRITICAL[0] : (d <= T_CRITICAL.length ? T_CRITICAL[d - 1] : 1.96);
+        return Math.abs(t) > critical;
+    }
+
+    private static double relativeChange(double base, double cur) {
+        return base == 0 ? 0.0 : (cur - base) / base;
+    }
+
+    private static double number(Map<String, Object> record, String key) {
+        Object value = record.get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    private static Map<String, Map<String, Object>> latestByKey(List<Map<String, Object>> records) {
+        Map<String, Map<String, Object>> byKey = new LinkedHashMap<>();
+        for (Map<String, Object> r : records) {
+            String key = r.get("model") + " " + r.get("description") + " " + r.get("backend") + " w" + r.get("workers");
+            byKey.put(key, r);
+        }
+        return byKey;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new BenchmarkCompare().run(args);
+    }
+}
@@ -13,11 +13,12 @@ import org.datavec.image.loader.NativeImageLoader;
 import org.datavec.image.recordreader.ImageRecordReader;
 import org.datavec.image.transform.ImageTransform;
 import org.datavec.image.transform.ResizeImageTransform;
+import org.deeplearning4j.datasets.ZipImageDataSetIterator;
 import org.deeplearning4j.datasets.datavec.RecordReaderDataSetIterator;
 import org.deeplearning4j.models.ModelType;
 
 import java.io.File;
-import java.util.Random;
+import java.util.*;
 
 /**
  * Benchmarks popular CNN models using the CIFAR-10 dataset.
@@ -28,7 +29,7 @@ public class BenchmarkCustom extends BaseBenchmark {
     // values to pass in from command line when compiled, esp running remotely
     @Parameter(names = {"-model","--modelType"}, description = "Model type (e.g. ALEXNET, VGG16, or CNN).")
     public static ModelType modelType = ModelType.ALEXNET;
-    @Parameter(names = {"-dataset","--datasetPath"}, description = "Path to the parent directly of multiple directories of classes of images.")
+    @Parameter(names = {"-dataset","--datasetPath"}, description = "Path to the parent directly of multiple directories of classes of images, or to a zip archive of them.")
     public static String datasetPath = null;
     @Parameter(names = {"-labels","--numLabels"}, description = "Num train labels.")
     public static int numLabels = -1;
@@ -45,11 +46,20 @@ public class BenchmarkCustom extends BaseBenchmark {
         if(modelType == ModelType.ALL || modelType == ModelType.RNN)
             throw new UnsupportedOperationException("Image benchmarks are applicable to CNN models only.");
 
+        if (synthetic) {
+            benchmarkCNN(height, width, channels, numLabels > 0 ? numLabels : 10, trainBatchSize, seed, datasetName, null, modelType, numGPUs);
+            return;
+        }
+
         if(datasetPath==null)
             throw new IllegalArgumentException("You must specify a valid path to a labelled dataset of images.");
 
         log.info("Loading data...");
         ParentPathLabelGenerator labelMaker = new ParentPathLabelGenerator();
+        if (datasetPath.toLowerCase().endsWith(".zip")) {
+            benchmarkZip(new File(datasetPath), labelMaker);
+            return;
+        }
         File mainPath = new File(datasetPath);
         FileSplit fileSplit = new FileSplit(mainPath, NativeImageLoader.ALLOWED_FORMATS, new Random(seed));
 
@@ -70,6 +80,34 @@ public class BenchmarkCustom extends BaseBenchmark {
         benchmarkCNN(height, width, channels, trainRR.getLabels().size(), trainBatchSize, seed, datasetName, iter, modelType, numGPUs);
     }
 
+    /**
+     * Same benchmark on an archive of class directories, decoded straight from the zip without extracting it.
+     * With numLabels set, only the first numLabels classes (by name) are used.
+     */
+    private void benchmarkZip(File zip, ParentPathLabelGenerator labelMaker) throws Exception {
+        List<String> entries = ZipImageDataSetIterator.listEntries(zip, "", NativeImageLoader.ALLOWED_FORMATS, new Random(seed));
+        Set<String> labelSet = new TreeSet<>();
+        for (String entry : entries)
+            labelSet.add(labelMaker.getLabelForPath(entry).toString());
+        List<String> labels = new ArrayList<>(labelSet);
+        if (numLabels > -1 && labels.size() > numLabels) {
+            labels = labels.subList(0, numLabels);
+            Set<String> keep = new HashSet<>(labels);
+            List<String> kept = new ArrayList<>();
+            for (String entry : entries) {
+                if (keep.contains(labelMaker.getLabelForPath(entry).toString()))
+                    kept.add(entry);
+            }
+            entries = kept;
+        }
+
+        try (ZipImageDataSetIterator iter = new ZipImageDataSetIterator(zip, entries, labelMaker, labels, trainBatchSize, height, width, channels)) {
+            log.info("Preparing benchmarks for "+entries.size()+" images, "+labels.size()+" labels from "+zip.getAbsolutePath());
+
+            benchmarkCNN(height, width, channels, labels.size(), trainBatchSize, seed, datasetName, iter, modelType, numGPUs);
+        }
+    }
+
     public static void main(String[] args) throws Exception {
         new BenchmarkCustom().execute(args);
     }
@@ -0,0 +1,121 @@
+package org.deeplearning4j.benchmarks;
+
+import com.beust.jcommander.Parameter;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.listeners.LoadReport;
+import org.deeplearning4j.models.ModelSelector;
+import org.deeplearning4j.models.ModelType;
+import org.deeplearning4j.models.SyntheticInputs;
+import org.deeplearning4j.nn.api.Model;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares unbatched serving against BatchingInferenceEngine at several max-wait settings.
+ *
+ * For every model, single-example requests are driven open-loop (see OpenLoopDriver) at each target rate,
+ * first straight into a shared model and then through the micro-batching engine. Each configuration gets
+ * its own throughput-vs-latency table, followed by a summary of the highest sustained request rate.
+ */
+@Slf4j
+public class BenchmarkDynamicBatching extends BaseBenchmark {
+
+    // values to pass in from command line when compiled, esp running remotely
+    @Parameter(names = {"-models","--modelTypes"}, description = "Comma separated models to benchmark.")
+    public static String modelTypes = "LENET,SIMPLEMLP,ALEXNET";
+    @Parameter(names = {"-labels","--numLabels"}, description = "Num labels.")
+    public static int numLabels = 10;
+    @Parameter(names = {"-clients","--numClients"}, description = "Number of client threads issuing requests.")
+    public static int numClients = 32;
+    @Parameter(names = {"-rates","--requestRates"}, description = "Comma separated target request rates (requests/sec) to sweep.")
+    public static String requestRates = "50,100,200,500,1000,2000";
+    @Parameter(names = {"-dur","--duration"}, description = "Seconds of load per target rate.")
+    public static int duration = 10;
+    @Parameter(names = {"-slo","--sloMillis"}, description = "p99 latency objective in ms; rates above it count as saturated. 0 disables.")
+    public static double sloMillis = 0;
+    @Parameter(names = {"-maxb","--maxBatchSize"}, description = "Largest batch the engine will form.")
+    public static int maxBatchSize = 32;
+    @Parameter(names = {"-waits","--maxWaitsMillis"}, description = "Comma separated max-wait settings (ms) to compare.")
+    public static String maxWaitsMillis = "0,1,2,5";
+
+    protected int seed = 42;
+
+    protected void run() throws Exception {
+        List<Double> rates = ListArguments.parseDoubles(requestRates, "request rates");
+        List<Double> waits = ListArguments.parseDoubles(maxWaitsMillis, "max waits");
+        DecimalFormat df = new DecimalFormat("#.##");
+
+        try (OpenLoopDriver driver = new OpenLoopDriver(numClients)) {
+            for (String name : modelTypes.split(",")) {
+                ModelType type = ModelType.valueOf(name.trim().toUpperCase());
+                int[] shape = SyntheticInputs.defaultShape(type);
+
+                log.info("Building model " + type + "....");
+                Model model = ModelSelector.select(type, shape[1], shape[2], shape[0], numLabels, seed, iterations).get(type).init();
+                INDArray input = SyntheticInputs.create(type, 1, shape[0], shape[1], shape[2], numLabels, seed).getFeatures();
+                for (int i = 0; i < 10; i++)
+                    output(model, input);
+
+                List<String[]> summary = new ArrayList<>();
+
+                // baseline: every request is its own output() call on the shared model
+                LoadReport unbatched = new LoadReport(type.toString(), numClients + " clients, unbatched", sloMillis);
+                OpenLoopDriver.RequestHandler[] handlers = new OpenLoopDriver.RequestHandler[numClients];
+                for (int c = 0; c < numClients; c++)
+                    handlers[c] = BenchmarkLoadGenerator.modelHandler(model, input.dup(), true);
+                for (double rate : rates)
+                    driver.run(rate, duration, handlers, unbatched);
+                System.out.println(unbatched.toString());
+                summary.add(new String[]{"unbatched", df.format(unbatched.saturationRate()), "1"});
+
+                for (double wait : waits) {
+                    String config = "maxBatch " + maxBatchSize + ", maxWait " + df.format(wait) + "ms";
+                    LoadReport report = new LoadReport(type.toString(), numClients + " clients, batched " + config, sloMillis);
+                    try (BatchingInferenceEngine engine = new BatchingInferenceEngine(model, maxBatchSize, (long) (wait * 1e6))) {
+                        for (int c = 0; c < numClients; c++)
+                            handlers[c] = engineHandler(engine, input.dup());
+                        for (double rate : rates) {
+                            long batches = engine.batchesExecuted();
+                            long examples = engine.examplesExecuted();
+                            driver.run(rate, duration, handlers, report);
+                            batches = engine.batchesExecuted() - batches;
+                            examples = engine.examplesExecuted() - examples;
+                            report.results().get(report.results().size() - 1)
+                                    .setAverageBatchSize(batches == 0 ? 0.0 : (double) examples / batches);
+                        }
+                        System.out.println(report.toString());
+                        LoadReport.RateResult sustained = report.sustainedResult();
+                        summary.add(new String[]{config, df.format(report.saturationRate()),
+                                sustained == null ? "-" : df.format(sustained.averageBatchSize())});
+                    }
+                }
+
+                log.info("=============================");
+                log.info("===== Benchmark Results =====");
+                log.info("=============================");
+
+                StringBuilder sb = new StringBuilder();
+                sb.append(String.format("%-36s %24s %16s\n", type + " serving mode", "Max sustained req/sec", "Avg batch at max"));
+                for (String[] row : summary)
+                    sb.append(String.format("%-36s %24s %16s\n", (Object[]) row));
+                System.out.println(sb.toString());
+            }
+        }
+    }
+
+    private static OpenLoopDriver.RequestHandler engineHandler(final BatchingInferenceEngine engine, final INDArray request) {
+        return new OpenLoopDriver.RequestHandler() {
+            @Override
+            public void handle() throws Exception {
+                engine.submit(request).get();
+            }
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        new BenchmarkDynamicBatching().execute(args);
+    }
+}
@@ -0,0 +1,97 @@
+package org.deeplearning4j.benchmarks;
+
+import com.beust.jcommander.Parameter;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.listeners.InferenceReport;
+import org.deeplearning4j.listeners.LatencyHistogram;
+import org.deeplearning4j.models.ModelSelector;
+import org.deeplearning4j.models.ModelType;
+import org.deeplearning4j.models.SyntheticInputs;
+import org.deeplearning4j.nn.api.Model;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.List;
+
+/**
+ * Benchmarks inference (output() in inference workspace mode, no training) across a sweep of batch sizes,
+ * using synthetic inputs. Reports throughput, per-request latency percentiles and the throughput-optimal
+ * batch size for every selected model.
+ */
+@Slf4j
+public class BenchmarkInference extends BaseBenchmark {
+
+    // values to pass in from command line when compiled, esp running remotely
+    @Parameter(names = {"-model","--modelType"}, description = "Model type (e.g. ALEXNET, VGG16, or CNN).")
+    public static ModelType modelType = ModelType.ALEXNET;
+    @Parameter(names = {"-shape","--inputShape"}, description = "Input shape CxHxW (sequence length for W2VSENTIMENT), or 'default' for each model's usual input.")
+    public static String inputShape = "default";
+    @Parameter(names = {"-labels","--numLabels"}, description = "Num labels.")
+    public static int numLabels = 10;
+    @Parameter(names = {"-bs","--batchSizes"}, description = "Comma separated batch sizes to sweep.")
+    public static String batchSizes = "1,2,4,8,16,32,64,128,256";
+    @Parameter(names = {"-wi","--warmupIterations"}, description = "Untimed output() calls before measuring each batch size.")
+    public static int warmupIterations = 10;
+    @Parameter(names = {"-ni","--inferenceIterations"}, description = "Timed output() calls per batch size.")
+    public static int inferenceIterations = 50;
+
+    protected int seed = 42;
+
+    protected void run() throws Exception {
+        List<Integer> sweep = ListArguments.parseInts(batchSizes, "batch sizes");
+
+        log.info("========================================");
+        log.info("==== Benchmarking inference latency ====");
+        log.info("========================================");
+
+        for (ModelType type : ModelSelector.select(modelType, 0, 0, 0, 0, 0, 0).keySet()) {
+            int[] shape = SyntheticInputs.parseShape(type, inputShape);
+            int channels = shape[0];
+            int height = shape[1];
+            int width = shape[2];
+
+            log.info("Building model " + type + "....");
+            Model model = ModelSelector.select(type, height, width, channels, numLabels, seed, iterations).get(type).init();
+            InferenceReport report = new InferenceReport(type.toString(), "synthetic " + channels + "x" + height + "x" + width);
+
+            for (int batchSize : sweep) {
+                try {
+                    benchmarkBatch(model, type, batchSize, channels, height, width, report);
+                } catch (Exception | OutOfMemoryError e) {
+                    // larger batches will not fit either, keep what we have so far
+                    log.warn("Stopping batch size sweep for " + type + " at batch size " + batchSize + ": " + e.getMessage());
+                    break;
+                }
+            }
+
+            log.info("=============================");
+            log.info("===== Benchmark Results =====");
+            log.info("=============================");
+
+            System.out.println(report.toString());
+        }
+    }
+
+    private void benchmarkBatch(Model model, ModelType type, int batchSize, int channels, int height, int width, InferenceReport report) {
+        INDArray input = SyntheticInputs.create(type, batchSize, channels, height, width, numLabels, seed).getFeatures();
+
+        for (int i = 0; i < warmupIterations; i++) {
+            output(model, input);
+        }
+
+        LatencyHistogram latency = new LatencyHistogram();
+        long totalTime = System.nanoTime();
+        for (int i = 0; i < inferenceIterations; i++) {
+            long time = System.nanoTime();
+            output(model, input);
+            latency.record(System.nanoTime() - time);
+        }
+        totalTime = System.nanoTime() - totalTime;
+
+        report.addResult(batchSize, totalTime, latency);
+        log.info("Batch size {}: {} samples/sec", batchSize, report.results().get(report.results().size() - 1).samplesPerSec());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new BenchmarkInference().execute(args);
+    }
+}
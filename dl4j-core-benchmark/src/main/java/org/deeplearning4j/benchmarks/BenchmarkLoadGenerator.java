@@ -0,0 +1,138 @@
+package org.deeplearning4j.benchmarks;
+
+import com.beust.jcommander.Parameter;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.listeners.LoadReport;
+import org.deeplearning4j.models.ModelSelector;
+import org.deeplearning4j.models.ModelType;
+import org.deeplearning4j.models.SyntheticInputs;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.List;
+
+/**
+ * Open-loop load generator for served models.
+ *
+ * N client threads issue single-example output() requests on an open-loop schedule (see OpenLoopDriver),
+ * so queueing behind a slow model is counted in the latency. Each target rate in the sweep yields one point
+ * of the throughput-vs-latency curve; the saturation point is the highest rate the model sustains.
+ *
+ * In shared mode all clients use one model instance (calls are serialized, as output() is not thread safe);
+ * in copies mode every client gets its own clone of the model.
+ */
+@Slf4j
+public class BenchmarkLoadGenerator extends BaseBenchmark {
+
+    // values to pass in from command line when compiled, esp running remotely
+    @Parameter(names = {"-model","--modelType"}, description = "Model type (e.g. LENET, ALEXNET).")
+    public static ModelType modelType = ModelType.LENET;
+    @Parameter(names = {"-shape","--inputShape"}, description = "Input shape CxHxW (sequence length for W2VSENTIMENT), or 'default' for the model's usual input.")
+    public static String inputShape = "default";
+    @Parameter(names = {"-labels","--numLabels"}, description = "Num labels.")
+    public static int numLabels = 10;
+    @Parameter(names = {"-clients","--numClients"}, description = "Number of client threads issuing requests.")
+    public static int numClients = 4;
+    @Parameter(names = {"-rates","--requestRates"}, description = "Comma separated target request rates (requests/sec) to sweep.")
+    public static String requestRates = "10,20,50,100,200,500,1000";
+    @Parameter(names = {"-dur","--duration"}, description = "Seconds of load per target rate.")
+    public static int duration = 10;
+    @Parameter(names = {"-slo","--sloMillis"}, description = "p99 latency objective in ms; rates above it count as saturated. 0 disables.")
+    public static double sloMillis = 0;
+    @Parameter(names = {"-mm","--modelMode"}, description = "shared, copies or both.")
+    public static String modelMode = "both";
+
+    protected int seed = 42;
+
+    protected void run() throws Exception {
+        if (modelType == ModelType.ALL || modelType == ModelType.CNN || modelType == ModelType.RNN)
+            throw new UnsupportedOperationException("Load generator benchmarks a single served model, not " + modelType);
+
+        if (!modelMode.equals("shared") && !modelMode.equals("copies") && !modelMode.equals("both"))
+            throw new IllegalArgumentException("Invalid model mode: '" + modelMode + "', expected shared, copies or both");
+        List<Double> rates = ListArguments.parseDoubles(requestRates, "request rates");
+
+        int[] shape = SyntheticInputs.parseShape(modelType, inputShape);
+        int channels = shape[0];
+        int height = shape[1];
+        int width = shape[2];
+
+        log.info("Building model " + modelType + "....");
+        Model model = ModelSelector.select(modelType, height, width, channels, numLabels, seed, iterations).get(modelType).init();
+        INDArray input = SyntheticInputs.create(modelType, 1, channels, height, width, numLabels, seed).getFeatures();
+
+        try (OpenLoopDriver driver = new OpenLoopDriver(numClients)) {
+            if (modelMode.equals("shared") || modelMode.equals("both")) {
+                Model[] models = new Model[numClients];
+                for (int i = 0; i < numClients; i++)
+                    models[i] = model;
+                runSweep("shared", models, true, input, rates, driver);
+            }
+            if (modelMode.equals("copies") || modelMode.equals("both")) {
+                Model[] models = new Model[numClients];
+                for (int i = 0; i < numClients; i++)
+                    models[i] = copy(model);
+                runSweep("copies", models, false, input, rates, driver);
+            }
+        }
+    }
+
+    private void runSweep(String mode, Model[] models, boolean serialize, INDArray input, List<Double> rates, OpenLoopDriver driver) throws Exception {
+        String description = numClients + " clients, " + mode + " model, single-example requests";
+        LoadReport report = new LoadReport(modelType.toString(), description, sloMillis);
+
+        log.info("===== Warming up " + mode + " model(s) =====");
+        for (Model m : models) {
+            for (int i = 0; i < 10; i++)
+                output(m, input);
+        }
+
+        OpenLoopDriver.RequestHandler[] handlers = new OpenLoopDriver.RequestHandler[numClients];
+        for (int c = 0; c < numClients; c++)
+            handlers[c] = modelHandler(models[c], input.dup(), serialize);
+
+        for (double rate : rates) {
+            log.info("Target rate {} requests/sec ({})", rate, mode);
+            driver.run(rate, duration, handlers, report);
+        }
+
+        log.info("=============================");
+        log.info("===== Benchmark Results =====");
+        log.info("=============================");
+
+        System.out.println(report.toString());
+    }
+
+    /**
+     * Handler calling output() directly on the model. Calls are serialized on the model when it is shared between clients.
+     */
+    protected static OpenLoopDriver.RequestHandler modelHandler(final Model model, final INDArray request, final boolean serialize) {
+        return new OpenLoopDriver.RequestHandler() {
+            @Override
+            public void handle() {
+                if (serialize) {
+                    synchronized (model) {
+                        output(model, request);
+                    }
+                } else {
+                    output(model, request);
+                }
+            }
+        };
+    }
+
+    private static Model copy(Model model) {
+        if (model instanceof MultiLayerNetwork) {
+            return ((MultiLayerNetwork) model).clone();
+        } else if (model instanceof ComputationGraph) {
+            return ((ComputationGraph) model).clone();
+        }
+        throw new UnsupportedOperationException("Unsupported model type: " + model.getClass().getName());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new BenchmarkLoadGenerator().execute(args);
+    }
+}
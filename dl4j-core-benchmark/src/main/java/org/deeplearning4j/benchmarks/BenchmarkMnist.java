@@ -2,6 +2,7 @@ package org.deeplearning4j.benchmarks;
 
 import lombok.extern.slf4j.Slf4j;
 import org.deeplearning4j.datasets.MnistDataSetBuilder;
+import org.deeplearning4j.datasets.ShardedDataSetIterator;
 import org.deeplearning4j.datasets.iterator.AsyncDataSetIterator;
 import org.deeplearning4j.models.ModelType;
 import org.nd4j.linalg.dataset.ExistingMiniBatchDataSetIterator;
@@ -33,6 +34,11 @@ public class BenchmarkMnist extends BaseBenchmark {
         if (modelType == ModelType.ALL || modelType == ModelType.RNN)
             throw new UnsupportedOperationException("Mnist benchmarks are applicable to CNN models only.");
 
+        if (synthetic) {
+            benchmarkCNN(height, width, channels, numLabels, batch, seed, datasetName, null, modelType, numGPUs);
+            return;
+        }
+
         log.info("Loading data...");
         if(new File(MnistDataSetBuilder.TRAIN_PATH).exists() == false) {
             List<String> dsb_args = new ArrayList<String>();
@@ -42,10 +48,13 @@ public class BenchmarkMnist extends BaseBenchmark {
             dsb_args.add(String.valueOf(seed));
             new MnistDataSetBuilder().run(dsb_args.toArray(new String[dsb_args.size()]));
         }
-        DataSetIterator exsitingTrain = new ExistingMiniBatchDataSetIterator(new File(MnistDataSetBuilder.TRAIN_PATH), "mnist-train-%d.bin");
-        DataSetIterator exsitingTest = new ExistingMiniBatchDataSetIterator(new File(MnistDataSetBuilder.TEST_PATH), "mnist-test-%d.bin");
-        DataSetIterator train = new AsyncDataSetIterator(exsitingTrain);
-        DataSetIterator test = new AsyncDataSetIterator(exsitingTest);
+        DataSetIterator train;
+        if (ShardedDataSetIterator.isShardDir(new File(MnistDataSetBuilder.TRAIN_PATH))) {
+            train = new ShardedDataSetIterator(new File(MnistDataSetBuilder.TRAIN_PATH));
+        } else {
+            DataSetIterator exsitingTrain = new ExistingMiniBatchDataSetIterator(new File(MnistDataSetBuilder.TRAIN_PATH), "mnist-train-%d.bin");
+            train = new AsyncDataSetIterator(exsitingTrain);
+        }
 
         benchmarkCNN(height, width, channels, numLabels, MnistDataSetBuilder.batchSize, seed, datasetName, train, modelType, numGPUs);
     }
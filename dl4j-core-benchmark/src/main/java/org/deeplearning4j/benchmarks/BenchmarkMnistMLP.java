@@ -2,6 +2,7 @@ package org.deeplearning4j.benchmarks;
 
 import lombok.extern.slf4j.Slf4j;
 import org.deeplearning4j.datasets.MnistDataSetBuilder;
+import org.deeplearning4j.datasets.ShardedDataSetIterator;
 import org.deeplearning4j.datasets.iterator.AsyncDataSetIterator;
 import org.deeplearning4j.models.ModelType;
 import org.nd4j.linalg.dataset.ExistingMiniBatchDataSetIterator;
@@ -31,6 +32,11 @@ public class BenchmarkMnistMLP extends BaseBenchmark {
         if (modelType != ModelType.SIMPLEMLP)
             throw new UnsupportedOperationException("Mnist MLP benchmarks are applicable to SIMPLE MLP models only.");
 
+        if (synthetic) {
+            benchmarkMLP(height, width, channels, numLabels, batch, seed, datasetName, null, modelType, numGPUs);
+            return;
+        }
+
         log.info("Loading data...");
         if(new File(MnistDataSetBuilder.TRAIN_PATH).exists() == false) {
             List<String> dsb_args = new ArrayList<String>();
@@ -40,10 +46,13 @@ public class BenchmarkMnistMLP extends BaseBenchmark {
             dsb_args.add(String.valueOf(seed));
             new MnistDataSetBuilder().run(dsb_args.toArray(new String[dsb_args.size()]));
         }
-        DataSetIterator exsitingTrain = new ExistingMiniBatchDataSetIterator(new File(MnistDataSetBuilder.TRAIN_PATH), "mnist-train-%d.bin");
-        DataSetIterator exsitingTest = new ExistingMiniBatchDataSetIterator(new File(MnistDataSetBuilder.TEST_PATH), "mnist-test-%d.bin");
-        DataSetIterator train = new AsyncDataSetIterator(exsitingTrain);
-        DataSetIterator test = new AsyncDataSetIterator(exsitingTest);
+        DataSetIterator train;
+        if (ShardedDataSetIterator.isShardDir(new File(MnistDataSetBuilder.TRAIN_PATH))) {
+            train = new ShardedDataSetIterator(new File(MnistDataSetBuilder.TRAIN_PATH));
+        } else {
+            DataSetIterator exsitingTrain = new ExistingMiniBatchDataSetIterator(new File(MnistDataSetBuilder.TRAIN_PATH), "mnist-train-%d.bin");
+            train = new AsyncDataSetIterator(exsitingTrain);
+        }
 
         benchmarkMLP(height, width, channels, numLabels, MnistDataSetBuilder.batchSize, seed, datasetName, train, modelType, numGPUs);
     }
@@ -0,0 +1,156 @@
+package org.deeplearning4j.benchmarks;
+
+import com.beust.jcommander.Parameter;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.datasets.SyntheticDataSetIterator;
+import org.deeplearning4j.listeners.ParallelWrapperReport;
+import org.deeplearning4j.models.ModelSelector;
+import org.deeplearning4j.models.ModelType;
+import org.deeplearning4j.models.SyntheticInputs;
+import org.deeplearning4j.models.rnn.W2VSentiment;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.ParallelWrapper;
+import org.nd4j.linalg.dataset.DataSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sweeps ParallelWrapper settings for multi-worker training on one host: workers, averagingFrequency,
+ * prefetchBuffer, averageUpdaters and legacy vs. new averaging. Every configuration trains a freshly initialized
+ * model on the same fixed number of synthetic samples and reports throughput, averaging overhead per round and
+ * the loss reached on a fixed batch.
+ *
+ * Averaging overhead is the extra wall time over a reference run with the same workers and prefetch buffer that
+ * never averages during the run, divided by the number of averaging rounds. The reference run follows an untimed
+ * run of the same configuration, so JIT compilation and cold caches do not count against it.
+ */
+@Slf4j
+public class BenchmarkParallelWrapper extends BaseBenchmark {
+
+    // values to pass in from command line when compiled, esp running remotely
+    @Parameter(names = {"-model","--modelType"}, description = "Model type (e.g. LENET, ALEXNET).")
+    public static ModelType modelType = ModelType.LENET;
+    @Parameter(names = {"-shape","--inputShape"}, description = "Input shape CxHxW (sequence length for W2VSENTIMENT), or 'default' for the model's usual input.")
+    public static String inputShape = "default";
+    @Parameter(names = {"-labels","--numLabels"}, description = "Num labels.")
+    public static int numLabels = 10;
+    @Parameter(names = {"-b","--batch"}, description = "Minibatch size per worker.")
+    public static int batchSize = 32;
+    @Parameter(names = {"-samples","--numSamples"}, description = "Samples trained on per configuration.")
+    public static int numSamples = 32000;
+    @Parameter(names = {"-workers","--workerCounts"}, description = "Comma separated worker counts. Default: 2, 4 ... up to the number of cores.")
+    public static String workerCounts = "";
+    @Parameter(names = {"-avgs","--averagingFrequencies"}, description = "Comma separated averaging frequencies.")
+    public static String averagingFrequencies = "1,5,10";
+    @Parameter(names = {"-pfs","--prefetchBuffers"}, description = "Comma separated prefetch buffer sizes.")
+    public static String prefetchBuffers = "2,4";
+    @Parameter(names = {"-aus","--averageUpdatersValues"}, description = "Comma separated averageUpdaters settings.")
+    public static String averageUpdatersValues = "false,true";
+    @Parameter(names = {"-las","--legacyAveragingValues"}, description = "Comma separated legacy averaging settings.")
+    public static String legacyAveragingValues = "false,true";
+
+    // number of distinct synthetic minibatches cycled through during training
+    private static final int RING_SIZE = 16;
+
+    protected int seed = 42;
+
+    protected void run() throws Exception {
+        if (modelType == ModelType.ALL || modelType == ModelType.CNN || modelType == ModelType.RNN)
+            throw new UnsupportedOperationException("ParallelWrapper sweep benchmarks a single model, not " + modelType);
+
+        int[] shape = SyntheticInputs.parseShape(modelType, inputShape);
+        int labels = SyntheticInputs.isSentiment(modelType) ? W2VSentiment.NUM_LABELS : numLabels;
+
+        int numBatches = Math.max(1, numSamples / batchSize);
+        SyntheticDataSetIterator batches = new SyntheticDataSetIterator(modelType, batchSize, shape[0], shape[1], shape[2], labels,
+                numBatches, RING_SIZE, seed);
+        DataSet evaluation = batches.next();
+
+        ParallelWrapperReport report = new ParallelWrapperReport(modelType.toString(),
+                "synthetic " + batchSize + "x" + shape[0] + "x" + shape[1] + "x" + shape[2] + ", " + (numBatches * batchSize) + " samples");
+
+        log.info("========================================");
+        log.info("=== Benchmarking ParallelWrapper configs ===");
+        log.info("========================================");
+
+        for (int workers : parseWorkerCounts(workerCounts)) {
+            for (int prefetch : ListArguments.parseInts(prefetchBuffers, "prefetch buffers")) {
+                // averagingFrequency larger than the run: only the final averaging at the end of fit(). The first,
+                // untimed run warms up the JIT and caches so the reference is not slower than the runs it is compared to
+                train(batches, workers, numBatches + 1, prefetch, false, false, shape, labels);
+                long reference = train(batches, workers, numBatches + 1, prefetch, false, false, shape, labels);
+                log.info("Reference workers={} prefetch={}: {} ms without averaging", workers, prefetch, reference / 1000000);
+
+                for (int avgFreq : ListArguments.parseInts(averagingFrequencies, "averaging frequencies")) {
+                    for (boolean averageUpdaters : ListArguments.parseBooleans(averageUpdatersValues, "averageUpdaters values")) {
+                        for (boolean legacy : ListArguments.parseBooleans(legacyAveragingValues, "legacy averaging values")) {
+                            Model model = newModel(shape, labels);
+                            long time = train(model, batches, workers, avgFreq, prefetch, averageUpdaters, legacy);
+                            long rounds = numBatches / ((long) workers * avgFreq);
+                            double loss = score(model, evaluation);
+
+                            report.addResult(new ParallelWrapperReport.ConfigResult(workers, avgFreq, prefetch, averageUpdaters, legacy,
+                                    (long) numBatches * batchSize, time, reference, rounds, loss));
+                            log.info("workers={} avg={} prefetch={} averageUpdaters={} legacy={}: {} ms, loss {}",
+                                    workers, avgFreq, prefetch, averageUpdaters, legacy, time / 1000000, loss);
+                        }
+                    }
+                }
+            }
+        }
+
+        log.info("=============================");
+        log.info("===== Benchmark Results =====");
+        log.info("=============================");
+
+        System.out.println(report.toString());
+    }
+
+    private Model newModel(int[] shape, int labels) {
+        return ModelSelector.select(modelType, shape[1], shape[2], shape[0], labels, seed, iterations).get(modelType).init();
+    }
+
+    private long train(SyntheticDataSetIterator batches, int workers, int avgFreq, int prefetch, boolean averageUpdaters, boolean legacy,
+                       int[] shape, int labels) {
+        return train(newModel(shape, labels), batches, workers, avgFreq, prefetch, averageUpdaters, legacy);
+    }
+
+    private long train(Model model, SyntheticDataSetIterator batches, int workers, int avgFreq, int prefetch, boolean averageUpdaters, boolean legacy) {
+        ParallelWrapper pw = parallelWrapper(model, workers, avgFreq, prefetch, averageUpdaters, legacy);
+        try {
+            batches.reset();
+            long time = System.nanoTime();
+            pw.fit(batches);
+            return System.nanoTime() - time;
+        } finally {
+            pw.close();
+        }
+    }
+
+    private static double score(Model model, DataSet ds) {
+        if (model instanceof MultiLayerNetwork) {
+            return ((MultiLayerNetwork) model).score(ds);
+        } else if (model instanceof ComputationGraph) {
+            return ((ComputationGraph) model).score(ds);
+        }
+        throw new UnsupportedOperationException("Unsupported model type: " + model.getClass().getName());
+    }
+
+    private static List<Integer> parseWorkerCounts(String workerCounts) {
+        if (!workerCounts.trim().isEmpty())
+            return ListArguments.parseInts(workerCounts, "worker counts");
+        List<Integer> out = new ArrayList<>();
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int w = 2; w < cores; w *= 2)
+            out.add(w);
+        out.add(Math.max(2, cores));
+        return out;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new BenchmarkParallelWrapper().execute(args);
+    }
+}
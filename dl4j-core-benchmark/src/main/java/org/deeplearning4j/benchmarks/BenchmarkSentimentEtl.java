@@ -0,0 +1,92 @@
+package org.deeplearning4j.benchmarks;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.datasets.SentimentExampleIterator;
+import org.deeplearning4j.datasets.W2VSentimentDataSetsBuilder;
+import org.deeplearning4j.datasets.WordVectorLookup;
+
+import java.text.DecimalFormat;
+
+/**
+ * Measures how fast SentimentExampleIterator assembles IMDB minibatches, without any model: batches/sec of the
+ * original per-token assembly against the vectorized gather (SentimentExampleIterator#setVectorizedAssembly).
+ * Use --tokenCache to take tokenization out of the measurement, so the numbers are about the assembly itself.
+ */
+@Slf4j
+public class BenchmarkSentimentEtl {
+
+    @Parameter(names = {"-wv","--wordVectorsPath"}, description = "Google News vectors.", required = true)
+    public static String wordVectorsPath = null;
+    @Parameter(names = {"-tc","--tokenCache"}, description = "Build minibatches from reviews tokenized once into a cache file instead of from the text.")
+    public static boolean tokenCache = false;
+    @Parameter(names = {"-b","--batch"}, description = "Minibatch size.")
+    public static int batchSize = 64;
+    @Parameter(names = {"-tl","--truncateLength"}, description = "Truncate reviews to this many words.")
+    public static int truncateLength = 256;
+    @Parameter(names = {"-hv","--heapVectors"}, description = "Load the word vectors onto the heap instead of memory-mapping them (MappedWordVectors).")
+    public static boolean heapVectors = false;
+    @Parameter(names = {"-n","--numBatches"}, description = "Minibatches timed per assembly path.")
+    public static int numBatches = 200;
+
+    public void run(String[] args) throws Exception {
+        JCommander jcmdr = new JCommander(this);
+        try {
+            jcmdr.parse(args);
+        } catch (ParameterException e) {
+            //User provides invalid input -> print the usage info
+            jcmdr.usage();
+            try {
+                Thread.sleep(500);
+            } catch (Exception e2) {
+            }
+            System.exit(1);
+        }
+
+        W2VSentimentDataSetsBuilder.downloadData();
+        WordVectorLookup wordVectors = W2VSentimentDataSetsBuilder.loadWordVectors(wordVectorsPath, heapVectors);
+        SentimentExampleIterator iter = new SentimentExampleIterator(W2VSentimentDataSetsBuilder.DATA_PATH, wordVectors,
+                batchSize, truncateLength, true);
+        if (tokenCache)
+            iter.useTokenCache(W2VSentimentDataSetsBuilder.tokenCacheFile(true));
+
+        log.info("=============================================");
+        log.info("===== Benchmarking sentiment assembly =======");
+        log.info("=============================================");
+
+        double perToken = time(iter.setVectorizedAssembly(false), "per-token");
+        double vectorized = time(iter.setVectorizedAssembly(true), "vectorized");
+
+        DecimalFormat df = new DecimalFormat("#.##");
+        StringBuilder sb = new StringBuilder();
+        String f = "%28s %45s\n";
+        sb.append(String.format(f, "Source", tokenCache ? "token cache" : "text"));
+        sb.append(String.format(f, "Batch size", batchSize));
+        sb.append(String.format(f, "Truncate length", truncateLength));
+        sb.append(String.format(f, "Per-token batches/sec", df.format(perToken)));
+        sb.append(String.format(f, "Vectorized batches/sec", df.format(vectorized)));
+        sb.append(String.format(f, "Speedup", df.format(vectorized / perToken) + "x"));
+        System.out.println(sb.toString());
+    }
+
+    private double time(SentimentExampleIterator iter, String name) throws Exception {
+        // one untimed pass over the timed minibatches: warms up the JIT and the page cache, and fills the
+        // vectorized path's table, which later epochs of training also find already filled
+        int totalBatches = Math.max(1, iter.totalExamples() / batchSize);
+        for (int i = 0; i < Math.min(numBatches, totalBatches); i++)
+            iter.loadBatch(i * batchSize, batchSize);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < numBatches; i++)
+            iter.loadBatch((i % totalBatches) * batchSize, batchSize);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        log.info("{}: {} minibatches in {} sec", name, numBatches, seconds);
+        return numBatches / seconds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new BenchmarkSentimentEtl().run(args);
+    }
+}
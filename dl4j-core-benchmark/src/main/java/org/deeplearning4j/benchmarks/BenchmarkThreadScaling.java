@@ -0,0 +1,133 @@
+package org.deeplearning4j.benchmarks;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.listeners.ResultsStore;
+import org.deeplearning4j.listeners.ScalingReport;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Reruns a training benchmark in forked JVMs at increasing native thread counts (OMP_NUM_THREADS and the
+ * MKL/OpenBLAS equivalents, which are only read when the native libraries load, hence the forks) and reports
+ * throughput, speedup and parallel efficiency per model.
+ *
+ * Each fork writes its results through ResultsStore into its own directory under a per-sweep timestamped
+ * directory, which is read back afterwards, so any BaseBenchmark subclass can be swept, e.g.
+ * {@code --benchmark BenchmarkMnist --benchmarkArgs "-model LENET -miter 2"}.
+ */
+@Slf4j
+public class BenchmarkThreadScaling {
+
+    @Parameter(names = {"-bench","--benchmark"}, description = "Benchmark class to fork, simple name in org.deeplearning4j.benchmarks or fully qualified.")
+    public static String benchmark = "BenchmarkMnist";
+    @Parameter(names = {"-args","--benchmarkArgs"}, description = "Arguments passed to every forked benchmark.")
+    public static String benchmarkArgs = "";
+    @Parameter(names = {"-threads","--threadCounts"}, description = "Comma separated native thread counts. Default: 1, 2, 4 ... up to the number of cores.")
+    public static String threadCounts = "";
+    @Parameter(names = {"-eff","--minEfficiency"}, description = "Parallel efficiency below which a model is reported as no longer scaling.")
+    public static double minEfficiency = 0.7;
+    @Parameter(names = {"-rd","--resultsDir"}, description = "Directory the forked benchmarks write their results to, one subdirectory per sweep.")
+    public static String resultsDir = ResultsStore.DEFAULT_DIR + File.separator + "thread-scaling";
+
+    private static final String[] THREAD_VARIABLES = {"OMP_NUM_THREADS", "MKL_NUM_THREADS", "OPENBLAS_NUM_THREADS"};
+
+    public void run(String[] args) throws Exception {
+        JCommander jcmdr = new JCommander(this);
+        try {
+            jcmdr.parse(args);
+        } catch (ParameterException e) {
+            //User provides invalid input -> print the usage info
+            jcmdr.usage();
+            try {
+                Thread.sleep(500);
+            } catch (Exception e2) {
+            }
+            System.exit(1);
+        }
+
+        String mainClass = benchmark.contains(".") ? benchmark : BenchmarkThreadScaling.class.getPackage().getName() + "." + benchmark;
+        Map<String, ScalingReport> reports = new LinkedHashMap<>();
+
+        log.info("========================================");
+        log.info("===== Benchmarking thread scaling ======");
+        log.info("========================================");
+
+        // a fresh directory per sweep, so records of earlier sweeps are not read back
+        File sweepDir = new File(resultsDir, new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+        for (int threads : parseThreadCounts(threadCounts)) {
+            File dir = new File(sweepDir, "threads-" + threads);
+            log.info("Forking " + mainClass + " with " + threads + " native thread(s)");
+
+            int exitCode = fork(mainClass, threads, dir);
+            if (exitCode != 0) {
+                log.warn("Benchmark with " + threads + " thread(s) exited with status " + exitCode + ", skipping");
+                continue;
+            }
+
+            for (Map<String, Object> record : ResultsStore.read(dir)) {
+                String key = record.get("model") + " " + record.get("description");
+                ScalingReport report = reports.get(key);
+                if (report == null) {
+                    report = new ScalingReport(String.valueOf(record.get("model")), String.valueOf(record.get("description")), minEfficiency);
+                    reports.put(key, report);
+                }
+                report.addResult(threads, ((Number) record.get("avgSamplesSec")).doubleValue());
+            }
+        }
+
+        log.info("=============================");
+        log.info("===== Benchmark Results =====");
+        log.info("=============================");
+
+        for (ScalingReport report : reports.values())
+            System.out.println(report.toString());
+    }
+
+    private int fork(String mainClass, int threads, File resultsDir) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        // carry over heap and system property settings, but not debugger/agent flags
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (arg.startsWith("-X") || arg.startsWith("-D"))
+                command.add(arg);
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass);
+        for (String arg : benchmarkArgs.trim().split("\\s+")) {
+            if (!arg.isEmpty())
+                command.add(arg);
+        }
+        command.add("--resultsDir");
+        command.add(resultsDir.getPath());
+
+        ProcessBuilder pb = new ProcessBuilder(command).inheritIO();
+        for (String variable : THREAD_VARIABLES)
+            pb.environment().put(variable, String.valueOf(threads));
+        return pb.start().waitFor();
+    }
+
+    private static List<Integer> parseThreadCounts(String threadCounts) {
+        List<Integer> out = new ArrayList<>();
+        if (threadCounts.trim().isEmpty()) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int t = 1; t < cores; t *= 2)
+                out.add(t);
+            out.add(cores);
+            return out;
+        }
+        out.addAll(ListArguments.parseInts(threadCounts, "thread counts"));
+        Collections.sort(out);
+        return out;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new BenchmarkThreadScaling().run(args);
+    }
+}
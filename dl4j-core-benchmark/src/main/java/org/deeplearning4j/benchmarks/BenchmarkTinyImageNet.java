@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FilenameUtils;
 import org.datavec.api.split.FileSplit;
 import org.datavec.image.recordreader.ImageRecordReader;
+import org.deeplearning4j.datasets.ShardedDataSetIterator;
 import org.deeplearning4j.datasets.TinyImageNetDataSetBuilder;
 import org.deeplearning4j.datasets.datavec.RecordReaderDataSetIterator;
 import org.deeplearning4j.datasets.iterator.callbacks.DataSetDeserializer;
@@ -61,6 +62,11 @@ public class BenchmarkTinyImageNet extends BaseBenchmark {
         if (modelType == ModelType.ALL || modelType == ModelType.RNN)
             throw new UnsupportedOperationException("TinyImageNet benchmarks are applicable to CNN models only.");
 
+        if (synthetic) {
+            benchmarkCNN(height, width, channels, TinyImageNetDataSetBuilder.numLabels, batchSize, seed, TinyImageNetDataSetBuilder.DATASETNAME, null, modelType, numGPUs);
+            return;
+        }
+
         log.info("Loading data...");
 
 //        DataSetIterator train = new ExistingMiniBatchDataSetIterator(new File(TRAIN_PATH));
@@ -69,7 +75,11 @@ public class BenchmarkTinyImageNet extends BaseBenchmark {
 
 
 //        FileSplitParallelDataSetIterator train = new FileSplitParallelDataSetIterator(new File(TRAIN_PATH), "dataset-%d.bin", new DataSetDeserializer());
-        FileSplitParallelDataSetIterator train = new FileSplitParallelDataSetIterator(new File(TRAIN_PATH), "dataset-%d.bin", new DataSetDeserializer(), numGPUs, 10, InequalityHandling.STOP_EVERYONE);
+        DataSetIterator train;
+        if (ShardedDataSetIterator.isShardDir(new File(TRAIN_PATH)))
+            train = new ShardedDataSetIterator(new File(TRAIN_PATH));
+        else
+            train = new FileSplitParallelDataSetIterator(new File(TRAIN_PATH), "dataset-%d.bin", new DataSetDeserializer(), numGPUs, 10, InequalityHandling.STOP_EVERYONE);
 
 //        Random r = new Random(12345);
 //        FileSplit trainSplit = new FileSplit(new File(TRAIN_DIR), allowedExtensions, r);
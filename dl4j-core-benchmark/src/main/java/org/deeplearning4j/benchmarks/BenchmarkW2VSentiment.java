@@ -2,12 +2,27 @@ package org.deeplearning4j.benchmarks;
 
 import com.beust.jcommander.Parameter;
 import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.datasets.BucketingSentimentIterator;
+import org.deeplearning4j.datasets.ParallelSentimentIterator;
+import org.deeplearning4j.datasets.SentimentExampleIterator;
+import org.deeplearning4j.datasets.ShardedDataSetIterator;
 import org.deeplearning4j.datasets.W2VSentimentDataSetsBuilder;
+import org.deeplearning4j.datasets.WordVectorLookup;
+import org.deeplearning4j.listeners.BenchmarkReport;
+import org.deeplearning4j.listeners.ProducerScalingReport;
+import org.deeplearning4j.listeners.TokenStats;
 import org.deeplearning4j.models.ModelType;
+import org.deeplearning4j.models.TestableModel;
+import org.deeplearning4j.models.rnn.W2VSentiment;
+import org.deeplearning4j.models.rnn.W2VSentimentEmbedding;
 import org.nd4j.linalg.dataset.ExistingMiniBatchDataSetIterator;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 
 import java.io.File;
+import java.text.DecimalFormat;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Created by kepricon on 17. 3. 28.
@@ -18,23 +33,178 @@ public class BenchmarkW2VSentiment extends BaseBenchmark {
     // values to pass in from command line when compiled, esp running remotely
     @Parameter(names = {"-model","--modelType"}, description = "Model type (e.g. ALEXNET, VGG16, or CNN).")
     public static ModelType modelType = ModelType.W2VSENTIMENT;
+    @Parameter(names = {"-wv","--wordVectorsPath"}, description = "Google News vectors. When set, minibatches are built from the IMDB review text during training instead of read from prebuilt datasets.")
+    public static String wordVectorsPath = null;
+    @Parameter(names = {"-tc","--tokenCache"}, description = "With --wordVectorsPath: build minibatches from reviews tokenized once into a cache file instead of from the text.")
+    public static boolean tokenCache = false;
+    @Parameter(names = {"-b","--batch"}, description = "Minibatch size with --wordVectorsPath.")
+    public static int batchSize = 64;
+    @Parameter(names = {"-tl","--truncateLength"}, description = "Truncate reviews to this many words with --wordVectorsPath.")
+    public static int truncateLength = 256;
+    @Parameter(names = {"-hv","--heapVectors"}, description = "Load the word vectors onto the heap instead of memory-mapping them (MappedWordVectors).")
+    public static boolean heapVectors = false;
+    @Parameter(names = {"-bk","--buckets"}, description = "With --wordVectorsPath: comma separated review length bucket bounds (e.g. 64,128,192,256); minibatches are then built from reviews of similar length.")
+    public static String buckets = "";
+    @Parameter(names = {"-bkns","--bucketNoShuffle"}, description = "With --buckets: keep corpus order within buckets and minibatches in bucket order instead of shuffling every epoch.")
+    public static boolean bucketNoShuffle = false;
+    @Parameter(names = {"-pr","--producers"}, description = "With --wordVectorsPath: threads building minibatches (ParallelSentimentIterator). 0 builds them on the single prefetch thread fit() adds.")
+    public static int producers = 0;
+    @Parameter(names = {"-prs","--producerSweep"}, description = "With --wordVectorsPath: comma separated producer counts (e.g. 1,2,4,8,16,32) to train with in turn, reporting from which count each model is no longer input-bound.")
+    public static String producerSweep = "";
+    @Parameter(names = {"-pru","--producersUnordered"}, description = "With --producers: return minibatches as they are finished instead of in corpus order.")
+    public static boolean producersUnordered = false;
+    @Parameter(names = {"-ms","--maxStall"}, description = "With --producerSweep: ETL stall % at or below which a model is no longer input-bound.")
+    public static double maxStall = 5.0;
+    @Parameter(names = {"-cmpemb","--compareEmbedding"}, description = "With --wordVectorsPath: train W2VSENTIMENT on word vector inputs, then W2VSENTIMENT_EMBEDDING on vocabulary index inputs, and compare them end to end.")
+    public static boolean compareEmbedding = false;
 
     protected String datasetName  = "IMDB review";
+    protected int seed = 42;
 
     protected void run() throws Exception {
         if(modelType == ModelType.ALL || modelType == ModelType.CNN)
             throw new UnsupportedOperationException("W2VSentiment benchmarks are applicable to RNN models only.");
 
+        if (synthetic) {
+            benchmarkRNN(seed, datasetName, null, modelType, numGPUs);
+            return;
+        }
+
         log.info("Loading data...");
 //        if(new File(W2VSentimentDataSetsBuilder.TRAIN_PATH).exists() == false) {
 //            new W2VSentimentDataSetsBuilder().run(null);
 //        }
-        DataSetIterator train = new ExistingMiniBatchDataSetIterator(new File(W2VSentimentDataSetsBuilder.TRAIN_PATH));
-        DataSetIterator test = new ExistingMiniBatchDataSetIterator(new File(W2VSentimentDataSetsBuilder.TEST_PATH));
+        if (wordVectorsPath != null) {
+            SentimentExampleIterator text = textIterator();
+            if (compareEmbedding)
+                compareEmbedding(text);
+            else if (!producerSweep.trim().isEmpty())
+                sweepProducers(text);
+            else
+                benchmarkText(datasetName, text, trainIterator(text, producers), modelType);
+            return;
+        }
+        if (modelType == ModelType.W2VSENTIMENT_EMBEDDING)
+            throw new UnsupportedOperationException("W2VSENTIMENT_EMBEDDING takes vocabulary indices, which are built from the text: set --wordVectorsPath");
+
+        DataSetIterator train;
+        if (ShardedDataSetIterator.isShardDir(new File(W2VSentimentDataSetsBuilder.TRAIN_PATH))) {
+            train = new ShardedDataSetIterator(new File(W2VSentimentDataSetsBuilder.TRAIN_PATH));
+        } else {
+            train = new ExistingMiniBatchDataSetIterator(new File(W2VSentimentDataSetsBuilder.TRAIN_PATH));
+        }
+
+        benchmarkRNN(seed, datasetName, train, modelType, numGPUs);
+    }
+
+    /**
+     * Reviews for minibatches built from the text by SentimentExampleIterator, optionally through the token cache.
+     */
+    protected SentimentExampleIterator textIterator() throws Exception {
+        W2VSentimentDataSetsBuilder.downloadData();
+        WordVectorLookup wordVectors = W2VSentimentDataSetsBuilder.loadWordVectors(wordVectorsPath, heapVectors);
+        SentimentExampleIterator train = new SentimentExampleIterator(W2VSentimentDataSetsBuilder.DATA_PATH, wordVectors,
+                batchSize, truncateLength, true);
+        if (tokenCache)
+            train.useTokenCache(W2VSentimentDataSetsBuilder.tokenCacheFile(true));
+        datasetName += tokenCache ? " (token cache)" : " (text)";
+        if (!buckets.trim().isEmpty())
+            datasetName += " bucketed " + buckets;
 
-        benchmarkRNN(datasetName, train, modelType, numGPUs);
+        // padding ratio and effective tokens/sec are reported for both iterators, to compare them
+        tokenStats = new TokenStats();
+        train.setTokenStats(tokenStats);
+        return train;
     }
 
+    /**
+     * Minibatches of {@code source}, bucketed by review length or built on {@code numProducers} threads.
+     */
+    protected DataSetIterator trainIterator(SentimentExampleIterator source, int numProducers) throws Exception {
+        if (!buckets.trim().isEmpty()) {
+            if (numProducers > 0)
+                throw new IllegalArgumentException("--buckets cannot be combined with --producers or --producerSweep");
+            return new BucketingSentimentIterator(source, ListArguments.toIntArray(ListArguments.parseInts(buckets, "bucket boundaries")), !bucketNoShuffle, seed);
+        }
+        if (numProducers > 0)
+            return new ParallelSentimentIterator(source, numProducers, Math.max(prefetchBuffer, 2 * numProducers), !producersUnordered);
+        return source;
+    }
+
+    /**
+     * Train every selected model once per producer count and report throughput and ETL stall % per count, and from
+     * which count on the model is no longer waiting for its input.
+     */
+    protected void sweepProducers(SentimentExampleIterator source) throws Exception {
+        Map<String, ProducerScalingReport> scaling = new LinkedHashMap<>();
+        String description = datasetName + (producersUnordered ? ", unordered" : ", ordered");
+        for (int k : ListArguments.parseInts(producerSweep, "producer counts")) {
+            log.info("Training with " + k + " producer(s)");
+            reports.clear();
+            benchmarkText(datasetName + ", " + k + " producer(s)", source, trainIterator(source, k), modelType);
+
+            for (BenchmarkReport report : reports) {
+                ProducerScalingReport s = scaling.get(report.name());
+                if (s == null) {
+                    s = new ProducerScalingReport(report.name(), description, maxStall);
+                    scaling.put(report.name(), s);
+                }
+                s.addResult(k, report.avgSamplesSec(), report.etl().stallPercent());
+            }
+        }
+
+        log.info("========================================");
+        log.info("===== Producer Scaling Results =========");
+        log.info("========================================");
+
+        for (ProducerScalingReport s : scaling.values())
+            System.out.println(s.toString());
+    }
+
+    /**
+     * Train {@code type} on minibatches of {@code source}. W2VSENTIMENT_EMBEDDING switches the iterator to index
+     * inputs and initializes its embedding layer from the iterator's word vectors.
+     */
+    protected void benchmarkText(String description, SentimentExampleIterator source, DataSetIterator train, ModelType type) throws Exception {
+        source.setIndexInputs(type == ModelType.W2VSENTIMENT_EMBEDDING);
+        if (type != ModelType.W2VSENTIMENT_EMBEDDING) {
+            benchmarkRNN(seed, description, train, type, numGPUs);
+            return;
+        }
+        Map<ModelType, TestableModel> models = new HashMap<>();
+        models.put(type, new W2VSentimentEmbedding(source.embeddings()));
+        benchmarkRNN(seed, description, train, models, numGPUs);
+    }
+
+    /**
+     * The same LSTM fed word vectors by the iterator (W2VSENTIMENT) and looking them up itself from vocabulary
+     * indices (W2VSENTIMENT_EMBEDDING), on the same reviews and minibatches.
+     */
+    protected void compareEmbedding(SentimentExampleIterator source) throws Exception {
+        reports.clear();
+        benchmarkText(datasetName + ", word vector inputs", source, trainIterator(source, producers), ModelType.W2VSENTIMENT);
+        benchmarkText(datasetName + ", index inputs", source, trainIterator(source, producers), ModelType.W2VSENTIMENT_EMBEDDING);
+
+        log.info("========================================");
+        log.info("===== Embedding Comparison Results =====");
+        log.info("========================================");
+
+        DecimalFormat df = new DecimalFormat("#.##");
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%28s %45s\n", "Description", datasetName));
+        sb.append("\n");
+        sb.append(String.format("%24s %14s %14s %12s %12s\n", "Model", "Floats/step", "Epoch (sec)", "Samples/sec", "ETL Stall %"));
+        for (BenchmarkReport report : reports) {
+            boolean indices = report.name().equals(ModelType.W2VSENTIMENT_EMBEDDING.toString());
+            sb.append(String.format("%24s %14s %14s %12s %12s\n",
+                    report.name(),
+                    String.valueOf(indices ? 1 : W2VSentiment.VECTOR_SIZE),
+                    df.format(report.epochTime() / 1000.0),
+                    df.format(report.avgSamplesSec()),
+                    df.format(report.etl().stallPercent())));
+        }
+        System.out.println(sb.toString());
+    }
 
     public static void main(String[] args) throws Exception {
         new BenchmarkW2VSentiment().execute(args);
@@ -0,0 +1,169 @@
+package org.deeplearning4j.benchmarks;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.berkeley.Pair;
+import org.deeplearning4j.listeners.LayerProfileReport;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.api.layers.IOutputLayer;
+import org.deeplearning4j.nn.conf.InputPreProcessor;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.graph.vertex.GraphVertex;
+import org.deeplearning4j.nn.graph.vertex.VertexIndices;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.List;
+
+/**
+ * Drives a MultiLayerNetwork layer by layer (or a ComputationGraph vertex by vertex in topological order)
+ * and records forward and backward time of every layer/vertex, plus the size of its activations.
+ *
+ * The forward and backward passes mirror what MultiLayerNetwork.feedForward/backprop and
+ * ComputationGraph.feedForward/calcBackpropGradients do internally, so the per-layer times add up to
+ * (approximately) the whole-network times reported by calcFwdBwdTime.
+ */
+@Slf4j
+public class LayerProfiler {
+
+    private LayerProfiler() {}
+
+    public static LayerProfileReport profile(String name, Model model, DataSetIterator iter, int maxIterations) {
+        LayerProfileReport report = new LayerProfileReport(name);
+        iter.reset();
+
+        int n = 0;
+        while (iter.hasNext() && (maxIterations < 0 || n < maxIterations)) {
+            DataSet ds = iter.next();
+            if (model instanceof MultiLayerNetwork) {
+                profile((MultiLayerNetwork) model, ds.getFeatures(), ds.getLabels(), report);
+            } else if (model instanceof ComputationGraph) {
+                profile((ComputationGraph) model, ds.getFeatures(), ds.getLabels(), report);
+            } else {
+                throw new UnsupportedOperationException("Unsupported model type: " + model.getClass().getName());
+            }
+            n++;
+        }
+        log.info("Profiled {} iterations layer by layer", n);
+        return report;
+    }
+
+    private static void profile(MultiLayerNetwork net, INDArray input, INDArray labels, LayerProfileReport report) {
+        Layer[] layers = net.getLayers();
+        LayerProfileReport.LayerStats[] stats = new LayerProfileReport.LayerStats[layers.length];
+        int miniBatchSize = input.size(0);
+
+        // forward
+        INDArray current = input;
+        for (int i = 0; i < layers.length; i++) {
+            String layerName = layers[i].conf().getLayer().getLayerName();
+            if (layerName == null)
+                layerName = "layer" + i;
+            stats[i] = report.layer(i + "-" + layerName, layers[i].conf().getLayer().getClass().getSimpleName(), layers[i].numParams());
+
+            long time = System.nanoTime();
+            InputPreProcessor preProcessor = net.getLayerWiseConfigurations().getInputPreProcess(i);
+            if (preProcessor != null)
+                current = preProcessor.preProcess(current, miniBatchSize);
+            current = layers[i].activate(current, true);
+            time = System.nanoTime() - time;
+
+            report.recordForward(stats[i], time, activationBytes(current));
+        }
+
+        // backward, starting from the output layer's loss
+        Layer outputLayer = layers[layers.length - 1];
+        if (!(outputLayer instanceof IOutputLayer))
+            throw new UnsupportedOperationException("Last layer is not an output layer: " + outputLayer.getClass().getName());
+        ((IOutputLayer) outputLayer).setLabels(labels);
+
+        INDArray epsilon = null;
+        for (int i = layers.length - 1; i >= 0; i--) {
+            long time = System.nanoTime();
+            Pair<Gradient, INDArray> pair = layers[i].backpropGradient(epsilon);
+            epsilon = pair.getSecond();
+            InputPreProcessor preProcessor = net.getLayerWiseConfigurations().getInputPreProcess(i);
+            if (preProcessor != null && i > 0)
+                epsilon = preProcessor.backprop(epsilon, miniBatchSize);
+            time = System.nanoTime() - time;
+
+            report.recordBackward(stats[i], time);
+        }
+    }
+
+    private static void profile(ComputationGraph graph, INDArray input, INDArray labels, LayerProfileReport report) {
+        GraphVertex[] vertices = graph.getVertices();
+        int[] topologicalOrder = graph.topologicalSortOrder();
+        LayerProfileReport.LayerStats[] stats = new LayerProfileReport.LayerStats[vertices.length];
+        List<String> networkOutputs = graph.getConfiguration().getNetworkOutputs();
+
+        // forward
+        for (int i = 0; i < topologicalOrder.length; i++) {
+            GraphVertex current = vertices[topologicalOrder[i]];
+            if (current.isInputVertex()) {
+                // single-input graphs only, like the rest of the benchmarks
+                for (VertexIndices v : current.getOutputVertices())
+                    vertices[v.getVertexIndex()].setInput(v.getVertexEdgeNumber(), input);
+                continue;
+            }
+
+            int idx = current.getVertexIndex();
+            String type = current.hasLayer() ? current.getLayer().conf().getLayer().getClass().getSimpleName() : current.getClass().getSimpleName();
+            int numParams = current.hasLayer() ? current.getLayer().numParams() : 0;
+            stats[idx] = report.layer(current.getVertexName(), type, numParams);
+
+            long time = System.nanoTime();
+            INDArray out = current.doForward(true);
+            time = System.nanoTime() - time;
+            report.recordForward(stats[idx], time, activationBytes(out));
+
+            VertexIndices[] outputsTo = current.getOutputVertices();
+            if (outputsTo != null) {
+                for (VertexIndices v : outputsTo)
+                    vertices[v.getVertexIndex()].setInput(v.getVertexEdgeNumber(), out);
+            }
+        }
+
+        // backward in reverse topological order, summing epsilons of vertices that feed several others
+        boolean[] epsilonSet = new boolean[vertices.length];
+        for (int i = topologicalOrder.length - 1; i >= 0; i--) {
+            GraphVertex current = vertices[topologicalOrder[i]];
+            if (current.isInputVertex())
+                continue;
+
+            if (current.isOutputVertex() && current.getLayer() instanceof IOutputLayer) {
+                if (networkOutputs.indexOf(current.getVertexName()) != 0)
+                    throw new UnsupportedOperationException("Only single-output graphs can be profiled");
+                ((IOutputLayer) current.getLayer()).setLabels(labels);
+            }
+
+            long time = System.nanoTime();
+            Pair<Gradient, INDArray[]> pair = current.doBackward(false);
+            INDArray[] epsilons = pair.getSecond();
+            VertexIndices[] inputVertices = current.getInputVertices();
+            if (inputVertices != null && epsilons != null) {
+                int j = 0;
+                for (VertexIndices v : inputVertices) {
+                    GraphVertex gv = vertices[v.getVertexIndex()];
+                    if (epsilonSet[gv.getVertexIndex()]) {
+                        gv.setEpsilon(gv.getEpsilon().add(epsilons[j++]));
+                    } else {
+                        gv.setEpsilon(epsilons[j++]);
+                    }
+                    epsilonSet[gv.getVertexIndex()] = true;
+                }
+            }
+            time = System.nanoTime() - time;
+
+            report.recordBackward(stats[current.getVertexIndex()], time);
+        }
+    }
+
+    private static long activationBytes(INDArray activations) {
+        return activations == null ? 0 : activations.lengthLong() * Nd4j.sizeOfDataType();
+    }
+}
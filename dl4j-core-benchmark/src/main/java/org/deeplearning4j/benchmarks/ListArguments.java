@@ -0,0 +1,83 @@
+package org.deeplearning4j.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parsing of the comma separated list flags of the sweep benchmarks (batch sizes, request rates, thread counts,
+ * ...). Blank entries are skipped; an empty list or an entry that is not a number is an IllegalArgumentException
+ * naming the flag.
+ *
+ * @author kepricon
+ */
+public class ListArguments {
+
+    private ListArguments() {
+    }
+
+    /**
+     * @param values comma separated integers, e.g. "1,2,4,8"
+     * @param what   what the values are, for error messages, e.g. "batch sizes"
+     */
+    public static List<Integer> parseInts(String values, String what) {
+        List<Integer> out = new ArrayList<>();
+        for (String s : split(values, what)) {
+            try {
+                out.add(Integer.parseInt(s));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + what + ": '" + s + "' in " + values, e);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @param values comma separated numbers, e.g. "10,20,50.5"
+     * @param what   what the values are, for error messages, e.g. "request rates"
+     */
+    public static List<Double> parseDoubles(String values, String what) {
+        List<Double> out = new ArrayList<>();
+        for (String s : split(values, what)) {
+            try {
+                out.add(Double.parseDouble(s));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + what + ": '" + s + "' in " + values, e);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @param values comma separated "true"/"false", e.g. "false,true"
+     * @param what   what the values are, for error messages
+     */
+    public static List<Boolean> parseBooleans(String values, String what) {
+        List<Boolean> out = new ArrayList<>();
+        for (String s : split(values, what)) {
+            if (!s.equalsIgnoreCase("true") && !s.equalsIgnoreCase("false"))
+                throw new IllegalArgumentException("Invalid " + what + ": '" + s + "' in " + values);
+            out.add(Boolean.parseBoolean(s));
+        }
+        return out;
+    }
+
+    public static int[] toIntArray(List<Integer> values) {
+        int[] arr = new int[values.size()];
+        for (int i = 0; i < arr.length; i++)
+            arr[i] = values.get(i);
+        return arr;
+    }
+
+    private static List<String> split(String values, String what) {
+        List<String> out = new ArrayList<>();
+        if (values != null) {
+            for (String s : values.split(",")) {
+                if (s.trim().length() > 0)
+                    out.add(s.trim());
+            }
+        }
+        if (out.isEmpty())
+            throw new IllegalArgumentException("No " + what + " given: '" + values + "'");
+        return out;
+    }
+}
@@ -0,0 +1,102 @@
+package org.deeplearning4j.benchmarks;
+
+import org.deeplearning4j.listeners.LatencyHistogram;
+import org.deeplearning4j.listeners.LoadReport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives requests from N client threads on an open-loop schedule.
+ *
+ * Request i is due at start + i / rate no matter how long earlier requests took. Latency is measured from
+ * the due time, not from when a client got around to sending it, so queueing behind a slow model is counted
+ * (no coordinated omission).
+ */
+public class OpenLoopDriver implements AutoCloseable {
+
+    /**
+     * One client's way of serving a single request. Each client owns its handler, so handlers may keep
+     * pre-allocated inputs.
+     */
+    public interface RequestHandler {
+        void handle() throws Exception;
+    }
+
+    private final int numClients;
+    private final ExecutorService executor;
+
+    public OpenLoopDriver(int numClients) {
+        this.numClients = numClients;
+        this.executor = Executors.newFixedThreadPool(numClients);
+    }
+
+    public int numClients() { return numClients; }
+
+    /**
+     * Issue rate * durationSec requests at the given rate and add the resulting curve point to the report.
+     *
+     * @param handlers one handler per client thread
+     */
+    public void run(double rate, int durationSec, RequestHandler[] handlers, LoadReport report) throws Exception {
+        if (handlers.length != numClients)
+            throw new IllegalArgumentException("Expected " + numClients + " handlers, got " + handlers.length);
+
+        final long interval = (long) (1e9 / rate);
+        final long numRequests = (long) (rate * durationSec);
+        final AtomicLong nextRequest = new AtomicLong(0);
+        final AtomicLong lastCompletion = new AtomicLong(0);
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram serviceTime = new LatencyHistogram();
+        final long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+
+        List<Callable<Long>> clients = new ArrayList<>();
+        for (int c = 0; c < numClients; c++) {
+            final RequestHandler handler = handlers[c];
+            clients.add(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    long completed = 0;
+                    long i;
+                    while ((i = nextRequest.getAndIncrement()) < numRequests) {
+                        long due = start + i * interval;
+                        long now;
+                        while ((now = System.nanoTime()) < due)
+                            LockSupport.parkNanos(due - now);
+
+                        long sent = System.nanoTime();
+                        handler.handle();
+                        long done = System.nanoTime();
+
+                        serviceTime.record(done - sent);
+                        latency.record(done - due);
+                        completed++;
+
+                        long last = lastCompletion.get();
+                        while (done > last && !lastCompletion.compareAndSet(last, done))
+                            last = lastCompletion.get();
+                    }
+                    return completed;
+                }
+            });
+        }
+
+        long completed = 0;
+        for (Future<Long> f : executor.invokeAll(clients))
+            completed += f.get();
+
+        report.addResult(rate, completed, lastCompletion.get() - start, latency, serviceTime);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
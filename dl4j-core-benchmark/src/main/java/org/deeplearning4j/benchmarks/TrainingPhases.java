@@ -0,0 +1,100 @@
+package org.deeplearning4j.benchmarks;
+
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+
+/**
+ * Runs the three phases of a training iteration separately so each can be timed: forward pass, backward pass
+ * and updater step (gradient normalization, updater and parameter update).
+ *
+ * The backward pass is not public API (MultiLayerNetwork.backprop, ComputationGraph.calcBackpropGradients),
+ * so it is resolved once into MethodHandles and invoked with invokeExact: no reflective lookup, access check
+ * or argument boxing happens inside the measured interval.
+ */
+public class TrainingPhases {
+    private static final MethodHandle MLN_BACKPROP;
+    private static final MethodHandle CG_BACKPROP;
+    private static final INDArray[] NO_EPSILONS = new INDArray[0];
+
+    static {
+        try {
+            Method mln = MultiLayerNetwork.class.getDeclaredMethod("backprop");
+            mln.setAccessible(true);
+            MLN_BACKPROP = MethodHandles.lookup().unreflect(mln);
+
+            Method cg = ComputationGraph.class.getDeclaredMethod("calcBackpropGradients", boolean.class, INDArray[].class);
+            cg.setAccessible(true);
+            CG_BACKPROP = MethodHandles.lookup().unreflect(cg);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Model model;
+    private int iteration = 0;
+
+    public TrainingPhases(Model model) {
+        if (!(model instanceof MultiLayerNetwork) && !(model instanceof ComputationGraph))
+            throw new UnsupportedOperationException("Unsupported model type: " + model.getClass().getName());
+        this.model = model;
+    }
+
+    /**
+     * Set input and labels, then run a training-mode forward pass.
+     *
+     * @return the activations, so callers can keep them alive
+     */
+    public Object forward(INDArray input, INDArray labels) {
+        if (model instanceof MultiLayerNetwork) {
+            MultiLayerNetwork net = (MultiLayerNetwork) model;
+            net.setInput(input);
+            net.setLabels(labels);
+            return net.feedForward();
+        } else {
+            ComputationGraph graph = (ComputationGraph) model;
+            graph.setInput(0, input);
+            graph.setLabel(0, labels);
+            return graph.feedForward();
+        }
+    }
+
+    /**
+     * Backward pass for the last forward pass; gradients end up in model.gradient().
+     */
+    public void backward() {
+        try {
+            if (model instanceof MultiLayerNetwork) {
+                MLN_BACKPROP.invokeExact((MultiLayerNetwork) model);
+            } else {
+                CG_BACKPROP.invokeExact((ComputationGraph) model, false, NO_EPSILONS);
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    /**
+     * Apply the gradient of the last backward pass: gradient normalization and updater, then the parameter step.
+     */
+    public void update(int batchSize) {
+        Gradient gradient = model.gradient();
+        if (model instanceof MultiLayerNetwork) {
+            MultiLayerNetwork net = (MultiLayerNetwork) model;
+            net.getUpdater().update(net, gradient, iteration, batchSize);
+        } else {
+            ComputationGraph graph = (ComputationGraph) model;
+            graph.getUpdater().update(graph, gradient, iteration, batchSize);
+        }
+        model.params().subi(gradient.gradient());
+        iteration++;
+    }
+}
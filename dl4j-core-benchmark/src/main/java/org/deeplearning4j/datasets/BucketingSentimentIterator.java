@@ -0,0 +1,189 @@
+package org.deeplearning4j.datasets;
+
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Length-bucketed minibatches over the reviews of a SentimentExampleIterator. SentimentExampleIterator pads every
+ * minibatch to its longest review; here reviews are first grouped by length into buckets (review length at most
+ * the bucket's upper boundary), so the reviews of a minibatch have similar lengths and little of the LSTM's work is
+ * spent on masked padding.
+ *
+ * Every epoch the reviews are shuffled within their bucket, cut into minibatches, and the minibatches of all
+ * buckets are shuffled together so training does not see all short reviews first. Review lengths are computed once
+ * up front; with a token cache (SentimentExampleIterator#useTokenCache) that needs no pass over the text.
+ *
+ * @author kepricon
+ */
+@Slf4j
+public class BucketingSentimentIterator implements DataSetIterator {
+
+    private final SentimentExampleIterator source;
+    private final int batchSize;
+    private final int[] boundaries;
+    private final List<List<Integer>> buckets = new ArrayList<>();
+    private final boolean shuffle;
+    private final Random rng;
+    private DataSetPreProcessor preProcessor;
+
+    private final List<int[]> batches = new ArrayList<>();
+    private int cursor = 0;
+    private int examplesReturned = 0;
+
+    /**
+     * @param source     reviews, labels and minibatch assembly
+     * @param boundaries ascending upper bounds of the bucket lengths; longer reviews go to the last bucket
+     * @param shuffle    shuffle within buckets and across minibatches every epoch; otherwise corpus order
+     * @param seed       random seed for shuffling
+     */
+    public BucketingSentimentIterator(SentimentExampleIterator source, int[] boundaries, boolean shuffle, long seed) throws IOException {
+        if (boundaries.length == 0)
+            throw new IllegalArgumentException("At least one bucket boundary is required");
+        this.source = source;
+        this.batchSize = source.batch();
+        this.boundaries = boundaries.clone();
+        Arrays.sort(this.boundaries);
+        this.shuffle = shuffle;
+        this.rng = new Random(seed);
+
+        for (int i = 0; i < this.boundaries.length; i++)
+            buckets.add(new ArrayList<Integer>());
+        for (int example = 0; example < source.totalExamples(); example++)
+            buckets.get(bucket(source.reviewLength(example))).add(example);
+
+        StringBuilder sizes = new StringBuilder();
+        for (int i = 0; i < buckets.size(); i++)
+            sizes.append(i == 0 ? "" : ", ").append("<=").append(this.boundaries[i]).append(": ").append(buckets.get(i).size());
+        log.info("Review length buckets {}", sizes);
+
+        buildBatches();
+    }
+
+    private int bucket(int length) {
+        for (int i = 0; i < boundaries.length; i++) {
+            if (length <= boundaries[i])
+                return i;
+        }
+        return boundaries.length - 1;
+    }
+
+    private void buildBatches() {
+        batches.clear();
+        for (List<Integer> bucket : buckets) {
+            List<Integer> examples = new ArrayList<>(bucket);
+            if (shuffle)
+                Collections.shuffle(examples, rng);
+            for (int from = 0; from < examples.size(); from += batchSize) {
+                int[] batch = new int[Math.min(batchSize, examples.size() - from)];
+                for (int i = 0; i < batch.length; i++)
+                    batch[i] = examples.get(from + i);
+                batches.add(batch);
+            }
+        }
+        if (shuffle)
+            Collections.shuffle(batches, rng);
+    }
+
+    @Override
+    public DataSet next(int num) {
+        throw new UnsupportedOperationException("Bucketed minibatches have a fixed size of " + batchSize);
+    }
+
+    @Override
+    public DataSet next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        int[] batch = batches.get(cursor++);
+        examplesReturned += batch.length;
+        DataSet ds;
+        try {
+            ds = source.loadExamples(batch);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (preProcessor != null)
+            preProcessor.preProcess(ds);
+        return ds;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return cursor < batches.size();
+    }
+
+    @Override
+    public int totalExamples() {
+        return source.totalExamples();
+    }
+
+    @Override
+    public int inputColumns() {
+        return source.inputColumns();
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return source.totalOutcomes();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return true;
+    }
+
+    /**
+     * Starts a new epoch with a new shuffle.
+     */
+    @Override
+    public void reset() {
+        cursor = 0;
+        examplesReturned = 0;
+        buildBatches();
+    }
+
+    @Override
+    public int batch() {
+        return batchSize;
+    }
+
+    @Override
+    public int cursor() {
+        return examplesReturned;
+    }
+
+    @Override
+    public int numExamples() {
+        return totalExamples();
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return source.getLabels();
+    }
+
+    @Override
+    public void remove() {
+
+    }
+}
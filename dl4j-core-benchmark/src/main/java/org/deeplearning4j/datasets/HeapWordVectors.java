@@ -0,0 +1,50 @@
+package org.deeplearning4j.datasets;
+
+import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+/**
+ * WordVectorLookup over word vectors loaded onto the heap, e.g. by WordVectorSerializer.loadStaticModel.
+ *
+ * @author kepricon
+ */
+public class HeapWordVectors implements WordVectorLookup {
+
+    private final WordVectors wordVectors;
+    private final int vectorSize;
+
+    public HeapWordVectors(WordVectors wordVectors) {
+        this.wordVectors = wordVectors;
+        this.vectorSize = vectorAt(0).length();
+    }
+
+    @Override
+    public int numWords() {
+        return wordVectors.vocab().numWords();
+    }
+
+    @Override
+    public int vectorSize() {
+        return vectorSize;
+    }
+
+    @Override
+    public int indexOf(String word) {
+        return wordVectors.hasWord(word) ? wordVectors.indexOf(word) : -1;
+    }
+
+    @Override
+    public boolean hasWord(String word) {
+        return wordVectors.hasWord(word);
+    }
+
+    @Override
+    public INDArray vectorAt(int index) {
+        return wordVectors.getWordVectorMatrix(wordVectors.vocab().wordAtIndex(index));
+    }
+
+    @Override
+    public INDArray getWordVectorMatrix(String word) {
+        return wordVectors.hasWord(word) ? wordVectors.getWordVectorMatrix(word) : null;
+    }
+}
@@ -0,0 +1,170 @@
+package org.deeplearning4j.datasets;
+
+import org.deeplearning4j.datasets.iterator.AsyncDataSetIterator;
+import org.deeplearning4j.listeners.EtlStats;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import java.util.List;
+
+/**
+ * DataSetIterator wrapper that times its delegate and records into EtlStats.
+ *
+ * On the consumer side (the training loop) it records the time blocked in hasNext()/next(); on the producer side
+ * (below a prefetching iterator) it records how long each minibatch takes to build. With both sides instrumented,
+ * produced minus consumed minibatches is the prefetch queue depth. Use {@link #instrument} to build the stack.
+ *
+ * @author kepricon
+ */
+public class InstrumentedDataSetIterator implements DataSetIterator {
+
+    private final DataSetIterator delegate;
+    private final EtlStats stats;
+    private final boolean producer;
+    private long pendingBlockedNanos = 0;
+
+    public InstrumentedDataSetIterator(DataSetIterator delegate, EtlStats stats, boolean producer) {
+        this.delegate = delegate;
+        this.stats = stats;
+        this.producer = producer;
+        if (producer)
+            stats.setProducerInstrumented();
+    }
+
+    /**
+     * Instrument an iterator for single-model fit(). If it supports asynchronous prefetch, the prefetching layer that
+     * fit() would otherwise add is built here, between a producer-side and a consumer-side wrapper,
+     * so production rate and queue depth are measured too. Iterators that already prefetch internally (e.g.
+     * AsyncDataSetIterator, FileSplitParallelDataSetIterator) are only instrumented on the consumer side.
+     *
+     * @param prefetch number of minibatches to prefetch
+     */
+    public static DataSetIterator instrument(DataSetIterator iter, EtlStats stats, int prefetch) {
+        if (iter.asyncSupported()) {
+            DataSetIterator async = new AsyncDataSetIterator(new InstrumentedDataSetIterator(iter, stats, true), prefetch);
+            return new InstrumentedDataSetIterator(async, stats, false);
+        }
+        return new InstrumentedDataSetIterator(iter, stats, false);
+    }
+
+    /**
+     * Instrument an iterator for ParallelWrapper, which builds its own prefetch queue for the workers: only the
+     * producer side is wrapped, and the wrapper still reports asyncSupported(), so that queue is kept. Production
+     * rate is measured; stall % and queue depth are not, since the consumers are inside ParallelWrapper. Iterators
+     * that already prefetch internally are only instrumented on the consumer side, as in {@link #instrument}.
+     */
+    public static DataSetIterator instrumentProducer(DataSetIterator iter, EtlStats stats) {
+        if (iter.asyncSupported())
+            return new InstrumentedDataSetIterator(iter, stats, true);
+        return new InstrumentedDataSetIterator(iter, stats, false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (producer)
+            return delegate.hasNext();
+
+        long start = System.nanoTime();
+        boolean hasNext = delegate.hasNext();
+        long time = System.nanoTime() - start;
+        stats.recordBlocked(start, time);
+        pendingBlockedNanos += time;
+        return hasNext;
+    }
+
+    @Override
+    public DataSet next() {
+        long start = System.nanoTime();
+        DataSet ds = delegate.next();
+        record(start, System.nanoTime() - start);
+        return ds;
+    }
+
+    @Override
+    public DataSet next(int num) {
+        long start = System.nanoTime();
+        DataSet ds = delegate.next(num);
+        record(start, System.nanoTime() - start);
+        return ds;
+    }
+
+    private void record(long start, long time) {
+        if (producer) {
+            stats.recordProduced(start, time);
+        } else {
+            stats.recordBlocked(start, time);
+            stats.recordConsumed(pendingBlockedNanos + time);
+            pendingBlockedNanos = 0;
+        }
+    }
+
+    @Override
+    public int totalExamples() {
+        return delegate.totalExamples();
+    }
+
+    @Override
+    public int inputColumns() {
+        return delegate.inputColumns();
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return delegate.totalOutcomes();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return delegate.resetSupported();
+    }
+
+    /**
+     * The consumer side never asks to be wrapped again: the prefetching layer, if any, is already below it.
+     */
+    @Override
+    public boolean asyncSupported() {
+        return producer && delegate.asyncSupported();
+    }
+
+    @Override
+    public void reset() {
+        pendingBlockedNanos = 0;
+        delegate.reset();
+    }
+
+    @Override
+    public int batch() {
+        return delegate.batch();
+    }
+
+    @Override
+    public int cursor() {
+        return delegate.cursor();
+    }
+
+    @Override
+    public int numExamples() {
+        return delegate.numExamples();
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        delegate.setPreProcessor(preProcessor);
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return delegate.getPreProcessor();
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return delegate.getLabels();
+    }
+
+    @Override
+    public void remove() {
+
+    }
+}
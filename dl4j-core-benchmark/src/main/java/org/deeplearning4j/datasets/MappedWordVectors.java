@@ -0,0 +1,303 @@
+package org.deeplearning4j.datasets;
+
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Word vectors read straight from a memory-mapped file instead of the heap: the float matrix is mapped as is, and
+ * words are found through an open-addressing hash table (linear probing over FNV-1a hashes of the UTF-8 bytes)
+ * that lives in the same file. Opening takes no time and no heap, and concurrent benchmark JVMs share one copy of
+ * the vectors through the page cache.
+ *
+ * The file is converted once from the word2vec binary format (e.g. GoogleNews-vectors-negative300.bin.gz, see
+ * {@link #fromBinary}). Layout, all ints in native byte order:
+ * <pre>
+ *   int magic, int version, int numWords, int vectorSize, int tableSize, int wordBytes, padding to 4096 bytes,
+ *   float[numWords * vectorSize] vectors, row i is word i of the binary file,
+ *   int[tableSize] hash table, 1 + the row of the word hashed there, 0 if empty,
+ *   int[numWords + 1] offset of each word's UTF-8 bytes,
+ *   byte[wordBytes] the words
+ * </pre>
+ *
+ * Only lookups are supported, so this is a WordVectorLookup rather than a DL4J WordVectors: there is no
+ * VocabCache, lookup table or nearest-word search. Load the vectors onto the heap (HeapWordVectors) for those.
+ *
+ * @author kepricon
+ */
+@Slf4j
+public class MappedWordVectors implements WordVectorLookup {
+    public static final int MAGIC = 0x4D575643;
+    // 2: hash bytes as unsigned, as FNV-1a does
+    public static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4096;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final int numWords;
+    private final int vectorSize;
+    private final int tableSize;
+    private final int rowsPerChunk;
+    private final FloatBuffer[] chunks;
+    private final ByteBuffer index;
+    private final int offsetsStart;
+    private final int wordsStart;
+
+    private MappedWordVectors(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.nativeOrder());
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                throw new IOException(file + " is not a mapped word vectors file of version " + VERSION);
+            this.numWords = header.getInt(8);
+            this.vectorSize = header.getInt(12);
+            this.tableSize = header.getInt(16);
+            int wordBytes = header.getInt(20);
+
+            long vectorBytes = (long) numWords * vectorSize * 4;
+            long indexStart = HEADER_BYTES + vectorBytes;
+            long indexBytes = 4L * tableSize + 4L * (numWords + 1) + wordBytes;
+            if (channel.size() != indexStart + indexBytes)
+                throw new IOException(file + " is truncated or corrupt");
+
+            // a single mapping is limited to 2GB, the Google News matrix is 3.6GB
+            this.rowsPerChunk = Integer.MAX_VALUE / (4 * vectorSize);
+            this.chunks = new FloatBuffer[(numWords + rowsPerChunk - 1) / rowsPerChunk];
+            for (int c = 0; c < chunks.length; c++) {
+                int rows = Math.min(rowsPerChunk, numWords - c * rowsPerChunk);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + 4L * vectorSize * c * rowsPerChunk,
+                        4L * vectorSize * rows).order(ByteOrder.nativeOrder()).asFloatBuffer();
+            }
+            this.index = channel.map(FileChannel.MapMode.READ_ONLY, indexStart, indexBytes).order(ByteOrder.nativeOrder());
+            this.offsetsStart = 4 * tableSize;
+            this.wordsStart = offsetsStart + 4 * (numWords + 1);
+        }
+    }
+
+    /**
+     * Map a file written by {@link #convert}.
+     */
+    public static MappedWordVectors open(File file) throws IOException {
+        long start = System.currentTimeMillis();
+        MappedWordVectors vectors = new MappedWordVectors(file);
+        log.info("Mapped {} word vectors of size {} from {} in {} ms", vectors.numWords, vectors.vectorSize,
+                file.getAbsolutePath(), System.currentTimeMillis() - start);
+        return vectors;
+    }
+
+    /**
+     * Word vectors of a word2vec binary file (gzipped or not), converted into {@code mapped} on first use, and again
+     * when {@code mapped} was written by an older version.
+     */
+    public static MappedWordVectors fromBinary(File binary, File mapped) throws IOException {
+        if (mapped.exists() && versionOf(mapped) != VERSION) {
+            log.info("{} is not a mapped word vectors file of version {}, converting again", mapped.getAbsolutePath(), VERSION);
+            if (!mapped.delete())
+                throw new IOException("Could not delete " + mapped);
+        }
+        if (!mapped.exists())
+            convert(binary, mapped);
+        return open(mapped);
+    }
+
+    private static int versionOf(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() < HEADER_BYTES)
+                return -1;
+            ByteBuffer header = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, 8).order(ByteOrder.nativeOrder());
+            return header.getInt(0) == MAGIC ? header.getInt(4) : -1;
+        }
+    }
+
+    /**
+     * Convert a word2vec binary file (header line "numWords vectorSize", then every word followed by a space and
+     * vectorSize little-endian floats) into the mapped layout. Vectors are streamed to disk; only the words and the
+     * hash table are held in memory.
+     */
+    public static void convert(File binary, File mapped) throws IOException {
+        long start = System.currentTimeMillis();
+        log.info("Converting {} to mapped word vectors in {}", binary.getAbsolutePath(), mapped.getAbsolutePath());
+        mapped.getAbsoluteFile().getParentFile().mkdirs();
+        File tmp = File.createTempFile(mapped.getName(), ".tmp", mapped.getAbsoluteFile().getParentFile());
+
+        try (InputStream file = new FileInputStream(binary);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(
+                     binary.getName().endsWith(".gz") ? new GZIPInputStream(file, 1 << 16) : file, 1 << 20));
+             RandomAccessFile raf = new RandomAccessFile(tmp, "rw")) {
+            String[] header = readToken(in, '\n').trim().split("\\s+");
+            int numWords = Integer.parseInt(header[0]);
+            int vectorSize = Integer.parseInt(header[1]);
+
+            FileChannel channel = raf.getChannel();
+            channel.position(HEADER_BYTES);
+            ByteArrayOutputStream words = new ByteArrayOutputStream(numWords * 16);
+            int[] offsets = new int[numWords + 1];
+            byte[] little = new byte[4 * vectorSize];
+            ByteBuffer row = ByteBuffer.allocateDirect(4 * vectorSize).order(ByteOrder.nativeOrder());
+            for (int i = 0; i < numWords; i++) {
+                byte[] word = readToken(in, ' ').trim().getBytes(UTF8);
+                words.write(word);
+                offsets[i + 1] = offsets[i] + word.length;
+
+                in.readFully(little);
+                ByteBuffer values = ByteBuffer.wrap(little).order(ByteOrder.LITTLE_ENDIAN);
+                row.clear();
+                for (int j = 0; j < vectorSize; j++)
+                    row.putFloat(values.getFloat());
+                row.flip();
+                while (row.hasRemaining())
+                    channel.write(row);
+
+                if ((i + 1) % 500000 == 0)
+                    log.info("{} of {} word vectors converted", i + 1, numWords);
+            }
+
+            byte[] wordBytes = words.toByteArray();
+            int tableSize = Integer.highestOneBit(Math.max(1, numWords)) * 4;
+            int[] table = new int[tableSize];
+            int duplicates = 0;
+            for (int i = 0; i < numWords; i++) {
+                int slot = slot(wordBytes, offsets[i], offsets[i + 1] - offsets[i], tableSize);
+                for (; table[slot] != 0; slot = (slot + 1) & (tableSize - 1)) {
+                    int other = table[slot] - 1;
+                    if (equal(wordBytes, offsets[other], offsets[other + 1] - offsets[other], wordBytes, offsets[i], offsets[i + 1] - offsets[i]))
+                        break;
+                }
+                // on duplicates the first occurrence wins, like a lookup that stops at the first match
+                if (table[slot] == 0)
+                    table[slot] = i + 1;
+                else
+                    duplicates++;
+            }
+            if (duplicates > 0)
+                log.warn("{} duplicate words in {}, only their first vectors can be looked up", duplicates, binary);
+
+            ByteBuffer index = ByteBuffer.allocate(4 * tableSize + 4 * (numWords + 1) + wordBytes.length).order(ByteOrder.nativeOrder());
+            index.asIntBuffer().put(table).put(offsets);
+            index.position(4 * tableSize + 4 * (numWords + 1));
+            index.put(wordBytes);
+            index.flip();
+            while (index.hasRemaining())
+                channel.write(index);
+
+            // header last, so an interrupted conversion never leaves a file that looks complete
+            ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+            head.putInt(MAGIC).putInt(VERSION).putInt(numWords).putInt(vectorSize).putInt(tableSize).putInt(wordBytes.length);
+            head.clear();
+            channel.position(0);
+            while (head.hasRemaining())
+                channel.write(head);
+        }
+        if (!tmp.renameTo(mapped)) {
+            // another process converted the same file concurrently
+            if (!mapped.exists())
+                throw new IOException("Could not move " + tmp + " to " + mapped);
+            tmp.delete();
+        }
+        log.info("Converted word vectors in {} ms", System.currentTimeMillis() - start);
+    }
+
+    private static String readToken(DataInputStream in, char delimiter) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        int b;
+        while ((b = in.read()) != delimiter) {
+            if (b == -1)
+                throw new EOFException("Unexpected end of word vectors file");
+            // vectors may or may not be followed by a newline before the next word
+            if (b != '\n' || bytes.size() > 0)
+                bytes.write(b);
+        }
+        return new String(bytes.toByteArray(), UTF8);
+    }
+
+    private static int slot(byte[] bytes, int from, int length, int tableSize) {
+        int hash = 0x811C9DC5;
+        for (int i = from; i < from + length; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        return hash & (tableSize - 1);
+    }
+
+    private static boolean equal(byte[] a, int aFrom, int aLength, byte[] b, int bFrom, int bLength) {
+        if (aLength != bLength)
+            return false;
+        for (int i = 0; i < aLength; i++) {
+            if (a[aFrom + i] != b[bFrom + i])
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int numWords() { return numWords; }
+
+    @Override
+    public int vectorSize() { return vectorSize; }
+
+    /**
+     * @return a copy of row {@code index} of the matrix, as a row vector
+     */
+    @Override
+    public INDArray vectorAt(int index) {
+        return Nd4j.create(floatsAt(index));
+    }
+
+    private float[] floatsAt(int index) {
+        if (index < 0 || index >= numWords)
+            throw new IndexOutOfBoundsException("Word index " + index + " of " + numWords);
+        FloatBuffer chunk = chunks[index / rowsPerChunk].duplicate();
+        chunk.position((index % rowsPerChunk) * vectorSize);
+        float[] out = new float[vectorSize];
+        chunk.get(out);
+        return out;
+    }
+
+    @Override
+    public int indexOf(String word) {
+        byte[] bytes = word.getBytes(UTF8);
+        for (int slot = slot(bytes, 0, bytes.length, tableSize); ; slot = (slot + 1) & (tableSize - 1)) {
+            int entry = index.getInt(4 * slot);
+            if (entry == 0)
+                return -1;
+            if (matches(entry - 1, bytes))
+                return entry - 1;
+        }
+    }
+
+    private boolean matches(int row, byte[] bytes) {
+        int from = index.getInt(offsetsStart + 4 * row);
+        int length = index.getInt(offsetsStart + 4 * (row + 1)) - from;
+        if (length != bytes.length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (index.get(wordsStart + from + i) != bytes[i])
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean hasWord(String word) {
+        return indexOf(word) >= 0;
+    }
+
+    @Override
+    public INDArray getWordVectorMatrix(String word) {
+        int row = indexOf(word);
+        return row < 0 ? null : vectorAt(row);
+    }
+
+    @Override
+    public String toString() {
+        return "MappedWordVectors(" + numWords + " x " + vectorSize + ")";
+    }
+}
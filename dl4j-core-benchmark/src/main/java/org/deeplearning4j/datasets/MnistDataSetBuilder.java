@@ -9,6 +9,7 @@ import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.slf4j.Logger;
 
 import java.io.File;
+import java.io.IOException;
 
 /**
  * Created by kepricon on 17. 3. 30.
@@ -22,6 +23,9 @@ public class MnistDataSetBuilder {
     @Parameter(names = {"-s","--seed"}, description = "seed")
     private int seed = 12345;
 
+    @Parameter(names = {"-sh","--shards"}, description = "Write memory-mappable shards (ShardWriter) instead of one file per minibatch")
+    private boolean shards = false;
+
     public static final String TRAIN_PATH = FilenameUtils.concat(System.getProperty("java.io.tmpdir"), "dl4j_mnist_train/");
     public static final String TEST_PATH = FilenameUtils.concat(System.getProperty("java.io.tmpdir"), "dl4j_mnist_test/");
 
@@ -50,6 +54,13 @@ public class MnistDataSetBuilder {
 
         log.info("Saving train data to " + trainFolder.getAbsolutePath() +  " and test data to " + testFolder.getAbsolutePath());
 
+        if (shards) {
+            writeShards(mnistTrain, trainFolder);
+            writeShards(mnistTest, testFolder);
+            log.info("Finished pre saving test and train shards");
+            return;
+        }
+
         int trainDataSaved = 0;
         int testDataSaved = 0;
         while(mnistTrain.hasNext()) {
@@ -66,4 +77,11 @@ public class MnistDataSetBuilder {
 
         log.info("Finished pre saving test and train data");
     }
+
+    private static void writeShards(DataSetIterator iterator, File dir) throws IOException {
+        try (ShardWriter writer = new ShardWriter(dir)) {
+            while (iterator.hasNext())
+                writer.write(iterator.next());
+        }
+    }
 }
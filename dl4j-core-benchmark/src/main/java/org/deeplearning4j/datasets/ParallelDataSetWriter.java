@@ -0,0 +1,171 @@
+package org.deeplearning4j.datasets;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.nd4j.linalg.dataset.DataSet;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Back end of the dataset builders: worker threads build minibatches concurrently and hand them to {@link #put},
+ * a single writer thread saves them from a bounded queue, either one DataSet.save file per minibatch
+ * (dataset-%d.bin, numbered in arrival order) or through a ShardWriter. The bounded queue keeps fast workers from
+ * piling up decoded minibatches when the disk is the bottleneck.
+ *
+ * Progress and the final throughput (examples/sec, counted when written) are logged.
+ *
+ * @author kepricon
+ */
+@Slf4j
+public class ParallelDataSetWriter {
+    public static final String FILE_PATTERN = "dataset-%d.bin";
+    private static final DataSet POISON = new DataSet();
+
+    private final File dir;
+    private final boolean shards;
+    private final long maxBatches;
+    private final String unit;
+    private final int logFrequency;
+    private final BlockingQueue<DataSet> queue;
+    private final ExecutorService workers;
+    private final Thread writer;
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    private volatile boolean stopped = false;
+    private volatile long written = 0;
+    private volatile long examples = 0;
+    private long start;
+
+    /**
+     * @param dir          output directory
+     * @param shards       write shards (ShardWriter) instead of one file per minibatch
+     * @param numWorkers   threads building minibatches
+     * @param queueSize    minibatches that may wait for the writer
+     * @param maxBatches   stop after this many minibatches
+     * @param unit         what an example is, for the log (e.g. "images")
+     * @param logFrequency log progress every this many minibatches
+     */
+    public ParallelDataSetWriter(File dir, boolean shards, int numWorkers, int queueSize, long maxBatches, String unit, int logFrequency) {
+        this.dir = dir;
+        this.shards = shards;
+        this.maxBatches = maxBatches;
+        this.unit = unit;
+        this.logFrequency = logFrequency;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.workers = Executors.newFixedThreadPool(numWorkers);
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    write();
+                } catch (Throwable t) {
+                    error.compareAndSet(null, t);
+                    stopped = true;
+                    queue.clear();
+                }
+            }
+        }, "dataset-writer");
+        dir.mkdirs();
+    }
+
+    /**
+     * Run one building task on the worker pool. Tasks call {@link #put} for every minibatch they build.
+     */
+    public void submit(final Task task) {
+        if (start == 0) {
+            start = System.nanoTime();
+            writer.start();
+        }
+        workers.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run(ParallelDataSetWriter.this);
+                } catch (Throwable t) {
+                    error.compareAndSet(null, t);
+                    stopped = true;
+                }
+            }
+        });
+    }
+
+    /**
+     * Queue a minibatch for writing, blocking while the queue is full.
+     *
+     * @return false once enough minibatches were written (or something failed), so the caller should stop
+     */
+    public boolean put(DataSet ds) throws InterruptedException {
+        while (!stopped) {
+            if (queue.offer(ds, 100, TimeUnit.MILLISECONDS))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Wait for all tasks and the writer to finish, and log the throughput.
+     */
+    public void await() throws Exception {
+        workers.shutdown();
+        if (start == 0)
+            return;
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        if (writer.isAlive()) {
+            queue.put(POISON);
+            writer.join();
+        }
+
+        Throwable t = error.get();
+        if (t instanceof Exception)
+            throw (Exception) t;
+        if (t != null)
+            throw new RuntimeException(t);
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        DecimalFormat df = new DecimalFormat("#.##");
+        log.info("Wrote {} minibatches ({} {}) to {} in {} sec: {} {}/sec", written, examples, unit, dir.getAbsolutePath(),
+                df.format(seconds), df.format(examples / seconds), unit);
+    }
+
+    private void write() throws InterruptedException, IOException {
+        ShardWriter shardWriter = shards ? new ShardWriter(dir) : null;
+        try {
+            DataSet ds;
+            while ((ds = queue.take()) != POISON) {
+                if (written >= maxBatches) {
+                    stopped = true;
+                    continue;
+                }
+                if (shardWriter != null)
+                    shardWriter.write(ds);
+                else
+                    ds.save(new File(FilenameUtils.concat(dir.getAbsolutePath(), String.format(FILE_PATTERN, written))));
+                examples += ds.numExamples();
+                written++;
+
+                if (written % logFrequency == 0) {
+                    double seconds = (System.nanoTime() - start) / 1e9;
+                    log.info("{} datasets saved so far, {} {}/sec", written, (long) (examples / seconds), unit);
+                }
+            }
+        } finally {
+            if (shardWriter != null)
+                shardWriter.close();
+        }
+    }
+
+    /**
+     * A unit of work for the pool, e.g. one partition of the input files.
+     */
+    public interface Task {
+        void run(ParallelDataSetWriter writer) throws Exception;
+    }
+}
@@ -0,0 +1,228 @@
+package org.deeplearning4j.datasets;
+
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Builds the minibatches of a SentimentExampleIterator on several producer threads. AsyncDataSetIterator prefetches
+ * on a single thread, which cannot keep an LSTM fed when every review is read, tokenized and embedded on the fly.
+ *
+ * The minibatches of an epoch are partitioned across the producers round-robin (producer k builds minibatches k,
+ * k + K, k + 2K, ...), each one assembled whole by SentimentExampleIterator#loadBatch. Ordered, every producer has
+ * its own bounded queue and the consumer takes minibatch i from producer i % K, so minibatches come out in corpus
+ * order whatever the thread timing; unordered, all producers share one bounded queue and minibatches come out as
+ * they are finished, so one slow review does not hold up the others.
+ *
+ * The iterator prefetches itself, so asyncSupported() is false and fit() does not wrap it again.
+ *
+ * @author kepricon
+ */
+public class ParallelSentimentIterator implements DataSetIterator {
+
+    private final SentimentExampleIterator source;
+    private final int numProducers;
+    private final int queueSize;
+    private final boolean ordered;
+    private final int batchSize;
+    private final int numBatches;
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+    private DataSetPreProcessor preProcessor;
+
+    private List<BlockingQueue<DataSet>> queues;
+    private List<Thread> producers;
+    private volatile boolean stopped = false;
+    private int batch = 0;
+    private int examplesReturned = 0;
+
+    /**
+     * @param source       reviews, labels and minibatch assembly
+     * @param numProducers threads building minibatches
+     * @param queueSize    minibatches that may wait for the consumer, over all producers
+     * @param ordered      return minibatches in corpus order; otherwise in the order they are finished
+     */
+    public ParallelSentimentIterator(SentimentExampleIterator source, int numProducers, int queueSize, boolean ordered) {
+        if (numProducers < 1)
+            throw new IllegalArgumentException("At least one producer is required, got " + numProducers);
+        this.source = source;
+        this.numProducers = numProducers;
+        this.queueSize = Math.max(queueSize, numProducers);
+        this.ordered = ordered;
+        this.batchSize = source.batch();
+        this.numBatches = (source.totalExamples() + batchSize - 1) / batchSize;
+    }
+
+    public int numProducers() { return numProducers; }
+
+    public boolean isOrdered() { return ordered; }
+
+    private void start() {
+        queues = new ArrayList<>();
+        if (ordered) {
+            for (int k = 0; k < numProducers; k++)
+                queues.add(new ArrayBlockingQueue<DataSet>(queueSize / numProducers));
+        } else {
+            queues.add(new ArrayBlockingQueue<DataSet>(queueSize));
+        }
+
+        stopped = false;
+        producers = new ArrayList<>();
+        for (int k = 0; k < numProducers; k++) {
+            final int producer = k;
+            final BlockingQueue<DataSet> queue = queues.get(ordered ? k : 0);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int b = producer; b < numBatches && !stopped; b += numProducers) {
+                            DataSet ds = source.loadBatch(b * batchSize, batchSize);
+                            while (!stopped && !queue.offer(ds, 100, TimeUnit.MILLISECONDS)) {
+                                // consumer is behind, keep waiting unless the epoch was abandoned
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        // reset() abandoned the epoch
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    }
+                }
+            }, "sentiment-producer-" + k);
+            thread.setDaemon(true);
+            producers.add(thread);
+            thread.start();
+        }
+    }
+
+    private void stop() {
+        if (producers == null)
+            return;
+        stopped = true;
+        for (Thread t : producers)
+            t.interrupt();
+        for (Thread t : producers) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        producers = null;
+        queues = null;
+    }
+
+    @Override
+    public DataSet next(int num) {
+        throw new UnsupportedOperationException("Minibatches are built ahead with a fixed size of " + batchSize);
+    }
+
+    @Override
+    public DataSet next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        if (producers == null)
+            start();
+
+        BlockingQueue<DataSet> queue = queues.get(ordered ? batch % numProducers : 0);
+        DataSet ds;
+        try {
+            while ((ds = queue.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                Throwable t = error.get();
+                if (t != null)
+                    throw new RuntimeException("Producer failed building a minibatch", t);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        batch++;
+        examplesReturned += ds.numExamples();
+
+        if (preProcessor != null)
+            preProcessor.preProcess(ds);
+        return ds;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return batch < numBatches;
+    }
+
+    @Override
+    public int totalExamples() {
+        return source.totalExamples();
+    }
+
+    @Override
+    public int inputColumns() {
+        return source.inputColumns();
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return source.totalOutcomes();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return false;
+    }
+
+    /**
+     * Stops the producers of the current epoch, dropping what they built ahead; the next epoch starts new ones.
+     */
+    @Override
+    public void reset() {
+        stop();
+        batch = 0;
+        examplesReturned = 0;
+    }
+
+    @Override
+    public int batch() {
+        return batchSize;
+    }
+
+    @Override
+    public int cursor() {
+        return examplesReturned;
+    }
+
+    @Override
+    public int numExamples() {
+        return totalExamples();
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return source.getLabels();
+    }
+
+    @Override
+    public void remove() {
+
+    }
+}
@@ -2,6 +2,7 @@ package org.deeplearning4j.datasets;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.deeplearning4j.listeners.TokenStats;
 import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
 import org.deeplearning4j.text.tokenization.tokenizer.preprocessor.CommonPreprocessor;
 import org.deeplearning4j.text.tokenization.tokenizerfactory.DefaultTokenizerFactory;
@@ -22,7 +23,7 @@ import java.util.List;
 import java.util.NoSuchElementException;
 
 /** This is a DataSetIterator that is specialized for the IMDB review dataset used in the Word2VecSentimentRNN example
- * It takes either the train or test set data from this data set, plus a WordVectors object (typically the Google News
+ * It takes either the train or test set data from this data set, plus word vectors (typically the Google News
  * 300 pretrained vectors from https://code.google.com/p/word2vec/) and generates training data sets.<br>
  * Inputs/features: variable-length time series, where each word (with unknown words removed) is represented by
  * its Word2Vec vector representation.<br>
@@ -31,7 +32,7 @@ import java.util.NoSuchElementException;
  * @author Alex Black
  */
 public class SentimentExampleIterator implements DataSetIterator {
-    private final WordVectors wordVectors;
+    private final WordVectorLookup wordVectors;
     private final int batchSize;
     private final int vectorSize;
     private final int truncateLength;
@@ -40,6 +41,11 @@ public class SentimentExampleIterator implements DataSetIterator {
     private final File[] positiveFiles;
     private final File[] negativeFiles;
     private final TokenizerFactory tokenizerFactory;
+    private SentimentTokenCache tokenCache;
+    private TokenStats tokenStats;
+    private WordVectorTable vectorTable;
+    private boolean indexInputs = false;
+    private boolean padToTruncateLength = false;
 
     /**
      * @param dataDirectory the directory of the IMDB review data set
@@ -49,8 +55,15 @@ public class SentimentExampleIterator implements DataSetIterator {
      * @param train If true: return the training data. If false: return the testing data.
      */
     public SentimentExampleIterator(String dataDirectory, WordVectors wordVectors, int batchSize, int truncateLength, boolean train) throws IOException {
+        this(dataDirectory, new HeapWordVectors(wordVectors), batchSize, truncateLength, train);
+    }
+
+    /**
+     * @param wordVectors word vectors, e.g. memory-mapped by MappedWordVectors
+     */
+    public SentimentExampleIterator(String dataDirectory, WordVectorLookup wordVectors, int batchSize, int truncateLength, boolean train) throws IOException {
         this.batchSize = batchSize;
-        this.vectorSize = wordVectors.getWordVector(wordVectors.vocab().wordAtIndex(0)).length;
+        this.vectorSize = wordVectors.vectorSize();
 
 
         File p = new File(FilenameUtils.concat(dataDirectory, "aclImdb/" + (train ? "train" : "test") + "/pos/") + "/");
@@ -60,6 +73,7 @@ public class SentimentExampleIterator implements DataSetIterator {
 
         this.wordVectors = wordVectors;
         this.truncateLength = truncateLength;
+        this.vectorTable = new WordVectorTable(wordVectors, vectorSize);
 
         tokenizerFactory = new DefaultTokenizerFactory();
         tokenizerFactory.setTokenPreProcessor(new CommonPreprocessor());
@@ -77,59 +91,146 @@ public class SentimentExampleIterator implements DataSetIterator {
     }
 
     private DataSet nextDataSet(int num) throws IOException {
-        //First: load reviews to String. Alternate positive and negative reviews
-        List<String> reviews = new ArrayList<>(num);
-        boolean[] positive = new boolean[num];
-        for( int i=0; i<num && cursor<totalExamples(); i++ ){
-            if(cursor % 2 == 0){
-                //Load positive review
-                int posReviewNumber = cursor / 2;
-                String review = FileUtils.readFileToString(positiveFiles[posReviewNumber]);
-                reviews.add(review);
-                positive[i] = true;
-            } else {
-                //Load negative review
-                int negReviewNumber = cursor / 2;
-                String review = FileUtils.readFileToString(negativeFiles[negReviewNumber]);
-                reviews.add(review);
-                positive[i] = false;
-            }
-            cursor++;
+        DataSet ds = loadBatch(cursor, num);
+        cursor = Math.min(cursor + num, totalExamples());
+        return ds;
+    }
+
+    /**
+     * Build the minibatch of up to {@code num} examples starting at example {@code first}, independent of the
+     * iterator's cursor. Safe to call from several threads, e.g. to build minibatches in parallel.
+     */
+    public DataSet loadBatch(int first, int num) throws IOException {
+        int n = Math.max(0, Math.min(num, totalExamples() - first));
+        int[] examples = new int[n];
+        for( int i=0; i<n; i++ )
+            examples[i] = first + i;
+        return loadExamples(examples);
+    }
+
+    /**
+     * Build a minibatch of the given examples, in that order. Safe to call from several threads.
+     */
+    public DataSet loadExamples(int[] examples) throws IOException {
+        int[][] allTokens = new int[examples.length][];
+        boolean[] positive = new boolean[examples.length];
+        for( int i=0; i<examples.length; i++ ){
+            allTokens[i] = reviewTokens(examples[i]);
+            positive[i] = tokenCache != null ? tokenCache.isPositive(examples[i]) : isPositiveReview(examples[i]);
         }
+        return toDataSet(allTokens, positive);
+    }
+
+    /**
+     * Vocabulary indices of the first truncateLength known words of a review: straight from the token cache if one
+     * is in use (the text is never touched), otherwise by loading, tokenizing and filtering the review text.
+     */
+    public int[] reviewTokens(int example) throws IOException {
+        if(tokenCache != null)
+            return tokenCache.tokens(example, truncateLength);
+        int[] tokens = tokenIndices(loadReviewToString(example));
+        return tokens.length > truncateLength ? Arrays.copyOf(tokens, truncateLength) : tokens;
+    }
+
+    /**
+     * @return number of time steps of a review, i.e. its known words up to truncateLength
+     */
+    public int reviewLength(int example) throws IOException {
+        if(tokenCache != null)
+            return Math.min(truncateLength, tokenCache.length(example));
+        return reviewTokens(example).length;
+    }
 
-        //Second: tokenize reviews and filter out unknown words
-        List<List<String>> allTokens = new ArrayList<>(reviews.size());
+    /**
+     * Features, labels and masks for reviews given as vocabulary indices, padded to the longest review (at most
+     * truncateLength words).
+     */
+    DataSet toDataSet(int[][] allTokens, boolean[] positive) {
         int maxLength = 0;
-        for(String s : reviews){
-            List<String> tokens = tokenizerFactory.create(s).getTokens();
-            List<String> tokensFiltered = new ArrayList<>();
-            for(String t : tokens ){
-                if(wordVectors.hasWord(t)) tokensFiltered.add(t);
-            }
-            allTokens.add(tokensFiltered);
-            maxLength = Math.max(maxLength,tokensFiltered.size());
-        }
+        for(int[] tokens : allTokens)
+            maxLength = Math.max(maxLength, tokens.length);
 
         //If longest review exceeds 'truncateLength': only take the first 'truncateLength' words
-        if(maxLength > truncateLength) maxLength = truncateLength;
+        if(maxLength > truncateLength || padToTruncateLength) maxLength = truncateLength;
+        //Every review has at least one time step, even when none of the words in the minibatch are known
+        if(maxLength == 0) maxLength = 1;
+
+        DataSet ds;
+        if(indexInputs) ds = indexDataSet(allTokens, positive, maxLength);
+        else if(vectorTable != null) ds = gatherDataSet(allTokens, positive, maxLength);
+        else ds = perTokenDataSet(allTokens, positive, maxLength);
+
+        if(tokenStats != null){
+            long realTokens = 0;
+            for(int[] tokens : allTokens)
+                realTokens += Math.min(tokens.length, maxLength);
+            tokenStats.record(realTokens, (long) allTokens.length * maxLength);
+        }
+        return ds;
+    }
+
+    /**
+     * Builds the features with one pullRows over a WordVectorTable for the whole minibatch; masks and labels are
+     * filled in Java arrays and copied over in bulk.
+     */
+    private DataSet gatherDataSet(int[][] allTokens, boolean[] positive, int maxLength) {
+        int n = allTokens.length;
+        int[] rows = vectorTable.rows(allTokens, maxLength);
+        //[n*maxLength, vectorSize], row i*maxLength+j is word j of review i; padding gathers the all-zero row
+        INDArray gathered = Nd4j.pullRows(vectorTable.table(), 1, rows);
+        INDArray features = gathered.reshape('c', n, maxLength, vectorSize).permute(0, 2, 1).dup('c');
+        return withLabelsAndMasks(features, allTokens, positive, maxLength);
+    }
+
+    /**
+     * Features are the WordVectorTable rows of the words, [n, 1, maxLength], for a network that looks up the vectors
+     * itself (see {@link #setIndexInputs}).
+     */
+    private DataSet indexDataSet(int[][] allTokens, boolean[] positive, int maxLength) {
+        int n = allTokens.length;
+        int[] rows = vectorTable.rows(allTokens, maxLength);
+        float[] indices = new float[rows.length];
+        for( int i=0; i<rows.length; i++ )
+            indices[i] = rows[i];
+        return withLabelsAndMasks(Nd4j.create(indices, new int[]{n, 1, maxLength}), allTokens, positive, maxLength);
+    }
+
+    private DataSet withLabelsAndMasks(INDArray features, int[][] allTokens, boolean[] positive, int maxLength) {
+        int n = allTokens.length;
+        float[] featuresMask = new float[n * maxLength];
+        float[] labelsMask = new float[n * maxLength];
+        float[] labels = new float[n * 2 * maxLength];
+        for( int i=0; i<n; i++ ){
+            //A review without known words still gets one (padding) step to carry its label
+            int lastIdx = Math.max(1, Math.min(allTokens[i].length, maxLength));
+            Arrays.fill(featuresMask, i * maxLength, i * maxLength + lastIdx, 1.0f);
+            labelsMask[i * maxLength + lastIdx - 1] = 1.0f;
+            int idx = (positive[i] ? 0 : 1);
+            labels[(i * 2 + idx) * maxLength + lastIdx - 1] = 1.0f;
+        }
+
+        return new DataSet(features, Nd4j.create(labels, new int[]{n, 2, maxLength}),
+                Nd4j.create(featuresMask, new int[]{n, maxLength}), Nd4j.create(labelsMask, new int[]{n, maxLength}));
+    }
 
+    private DataSet perTokenDataSet(int[][] allTokens, boolean[] positive, int maxLength) {
         //Create data for training
-        //Here: we have reviews.size() examples of varying lengths
-        INDArray features = Nd4j.create(reviews.size(), vectorSize, maxLength);
-        INDArray labels = Nd4j.create(reviews.size(), 2, maxLength);    //Two labels: positive or negative
+        //Here: we have allTokens.length examples of varying lengths
+        int n = allTokens.length;
+        INDArray features = Nd4j.create(n, vectorSize, maxLength);
+        INDArray labels = Nd4j.create(n, 2, maxLength);    //Two labels: positive or negative
         //Because we are dealing with reviews of different lengths and only one output at the final time step: use padding arrays
         //Mask arrays contain 1 if data is present at that time step for that example, or 0 if data is just padding
-        INDArray featuresMask = Nd4j.zeros(reviews.size(), maxLength);
-        INDArray labelsMask = Nd4j.zeros(reviews.size(), maxLength);
+        INDArray featuresMask = Nd4j.zeros(n, maxLength);
+        INDArray labelsMask = Nd4j.zeros(n, maxLength);
 
         int[] temp = new int[2];
-        for( int i=0; i<reviews.size(); i++ ){
-            List<String> tokens = allTokens.get(i);
+        for( int i=0; i<n; i++ ){
+            int[] tokens = allTokens[i];
             temp[0] = i;
             //Get word vectors for each word in review, and put them in the training data
-            for( int j=0; j<tokens.size() && j<maxLength; j++ ){
-                String token = tokens.get(j);
-                INDArray vector = wordVectors.getWordVectorMatrix(token);
+            for( int j=0; j<tokens.length && j<maxLength; j++ ){
+                INDArray vector = wordVectors.vectorAt(tokens[j]);
                 features.put(new INDArrayIndex[]{NDArrayIndex.point(i), NDArrayIndex.all(), NDArrayIndex.point(j)}, vector);
 
                 temp[1] = j;
@@ -137,7 +238,7 @@ public class SentimentExampleIterator implements DataSetIterator {
             }
 
             int idx = (positive[i] ? 0 : 1);
-            int lastIdx = Math.min(tokens.size(),maxLength);
+            int lastIdx = Math.min(tokens.length,maxLength);
             labels.putScalar(new int[]{i,idx,lastIdx-1},1.0);   //Set label: [0,1] for negative, [1,0] for positive
             labelsMask.putScalar(new int[]{i,lastIdx-1},1.0);   //Specify that an output exists at the final time step for this example
         }
@@ -145,6 +246,95 @@ public class SentimentExampleIterator implements DataSetIterator {
         return new DataSet(features,labels,featuresMask,labelsMask);
     }
 
+    /**
+     * Choose how minibatches are assembled: gathered from a WordVectorTable in a few bulk operations (the default),
+     * or the original per-token put of every word vector, kept for comparison (see BenchmarkSentimentEtl). Index
+     * inputs always use the table, so per-token assembly cannot be chosen while they are on.
+     */
+    public SentimentExampleIterator setVectorizedAssembly(boolean vectorized) {
+        if(!vectorized && indexInputs)
+            throw new IllegalStateException("Index inputs are rows of the word vector table; call setIndexInputs(false) first");
+        if(!vectorized) vectorTable = null;
+        else if(vectorTable == null) vectorTable = new WordVectorTable(wordVectors, vectorSize);
+        return this;
+    }
+
+    /**
+     * Switch between word vector features [n, 300, time] and vocabulary index features [n, 1, time] for
+     * W2VSentimentEmbedding, whose frozen embedding layer is initialized from {@link #embeddings()}. Indices are rows
+     * of this iterator's WordVectorTable, not of the full vocabulary, so the embedding only holds the words of these
+     * reviews; switching on reads every review once to collect them.
+     */
+    public SentimentExampleIterator setIndexInputs(boolean indexInputs) throws IOException {
+        if(indexInputs && !this.indexInputs){
+            if(vectorTable == null) vectorTable = new WordVectorTable(wordVectors, vectorSize);
+            for( int i=0; i<totalExamples(); i++ )
+                vectorTable.rows(new int[][]{reviewTokens(i)}, truncateLength);
+        }
+        this.indexInputs = indexInputs;
+        return this;
+    }
+
+    /**
+     * @return the word vectors of index inputs, [rows, 300], row i for index i (row 0, padding, is all zeros)
+     */
+    public INDArray embeddings() {
+        if(vectorTable == null) throw new IllegalStateException("No word vector table; call setIndexInputs(true) first");
+        return vectorTable.embeddings();
+    }
+
+    /**
+     * Pad every minibatch to truncateLength time steps instead of its longest review, so all minibatches have the
+     * same shape (as ShardWriter requires); the masks cover the padding.
+     */
+    public SentimentExampleIterator setPadToTruncateLength(boolean padToTruncateLength) {
+        this.padToTruncateLength = padToTruncateLength;
+        return this;
+    }
+
+    /**
+     * Count real and padded time steps of every minibatch built from now on into {@code tokenStats}.
+     */
+    public void setTokenStats(TokenStats tokenStats) {
+        this.tokenStats = tokenStats;
+    }
+
+    /**
+     * Tokenize a review and map its known words to vocabulary indices; unknown words are dropped.
+     */
+    public int[] tokenIndices(String review) {
+        List<String> tokens = tokenizerFactory.create(review).getTokens();
+        int[] out = new int[tokens.size()];
+        int n = 0;
+        for(String t : tokens ){
+            int idx = wordVectors.indexOf(t);
+            if(idx >= 0) out[n++] = idx;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Switch to building minibatches from a token cache (see SentimentTokenCache), running the one-time
+     * preprocessing pass first if the cache file does not exist yet.
+     */
+    public SentimentExampleIterator useTokenCache(File file) throws IOException {
+        if(!file.exists())
+            SentimentTokenCache.build(this, file);
+        SentimentTokenCache cache = SentimentTokenCache.open(file, vocabSize());
+        if(cache.numReviews() != totalExamples())
+            throw new IOException(file + " holds " + cache.numReviews() + " reviews, expected " + totalExamples() + "; delete it to rebuild");
+        this.tokenCache = cache;
+        return this;
+    }
+
+    public int truncateLength() {
+        return truncateLength;
+    }
+
+    public int vocabSize() {
+        return wordVectors.numWords();
+    }
+
     @Override
     public int totalExamples() {
         return positiveFiles.length + negativeFiles.length;
@@ -152,7 +342,7 @@ public class SentimentExampleIterator implements DataSetIterator {
 
     @Override
     public int inputColumns() {
-        return vectorSize;
+        return indexInputs ? 1 : vectorSize;
     }
 
     @Override
@@ -0,0 +1,126 @@
+package org.deeplearning4j.datasets;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Tokenized IMDB reviews as vocabulary indices, written once by a preprocessing pass over the text so that later
+ * epochs never read, tokenize or filter a review again (see SentimentExampleIterator#useTokenCache).
+ *
+ * File layout, all ints in native byte order, read through a memory mapping:
+ * <pre>
+ *   int magic, int version, int vocabSize, int numReviews, int totalTokens,
+ *   int[numReviews] label (1: positive, 0: negative),
+ *   int[numReviews + 1] offset of each review's first token,
+ *   int[totalTokens] vocabulary indices of the known words of every review, untruncated
+ * </pre>
+ *
+ * @author kepricon
+ */
+@Slf4j
+public class SentimentTokenCache {
+    public static final int MAGIC = 0x53544B43;
+    public static final int VERSION = 1;
+    private static final int HEADER_INTS = 5;
+
+    private final IntBuffer data;
+    private final int numReviews;
+    private final int labelsStart;
+    private final int offsetsStart;
+    private final int tokensStart;
+
+    private SentimentTokenCache(IntBuffer data) {
+        this.data = data;
+        this.numReviews = data.get(3);
+        this.labelsStart = HEADER_INTS;
+        this.offsetsStart = labelsStart + numReviews;
+        this.tokensStart = offsetsStart + numReviews + 1;
+    }
+
+    /**
+     * Map a cache file built for a vocabulary of {@code vocabSize} words.
+     */
+    public static SentimentTokenCache open(File file, int vocabSize) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            IntBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.nativeOrder()).asIntBuffer();
+            if (data.limit() < HEADER_INTS || data.get(0) != MAGIC || data.get(1) != VERSION)
+                throw new IOException(file + " is not a token cache of version " + VERSION);
+            if (data.get(2) != vocabSize)
+                throw new IOException(file + " was built for a vocabulary of " + data.get(2) + " words, not " + vocabSize + "; delete it to rebuild");
+            SentimentTokenCache cache = new SentimentTokenCache(data);
+            if (data.limit() != cache.tokensStart + data.get(4))
+                throw new IOException(file + " is truncated or corrupt");
+            return cache;
+        }
+    }
+
+    /**
+     * Tokenize every review of {@code source} once and write the cache file.
+     */
+    public static void build(SentimentExampleIterator source, File file) throws IOException {
+        int numReviews = source.totalExamples();
+        int[] labels = new int[numReviews];
+        int[] offsets = new int[numReviews + 1];
+        int[] tokens = new int[numReviews * 256];
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < numReviews; i++) {
+            int[] review = source.tokenIndices(source.loadReviewToString(i));
+            if (offsets[i] + review.length > tokens.length)
+                tokens = Arrays.copyOf(tokens, Math.max(tokens.length * 2, offsets[i] + review.length));
+            System.arraycopy(review, 0, tokens, offsets[i], review.length);
+            offsets[i + 1] = offsets[i] + review.length;
+            labels[i] = source.isPositiveReview(i) ? 1 : 0;
+
+            if ((i + 1) % 5000 == 0)
+                log.info("{} of {} reviews tokenized", i + 1, numReviews);
+        }
+        int totalTokens = offsets[numReviews];
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 * (HEADER_INTS + 2 * numReviews + 1 + totalTokens)).order(ByteOrder.nativeOrder());
+        IntBuffer ints = buffer.asIntBuffer();
+        ints.put(MAGIC).put(VERSION).put(source.vocabSize()).put(numReviews).put(totalTokens);
+        ints.put(labels).put(offsets).put(tokens, 0, totalTokens);
+
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw")) {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+        if (!tmp.renameTo(file))
+            throw new IOException("Could not move " + tmp + " to " + file);
+
+        log.info("Token cache of {} reviews, {} tokens written to {} in {} ms", numReviews, totalTokens, file.getAbsolutePath(),
+                System.currentTimeMillis() - start);
+    }
+
+    public int numReviews() { return numReviews; }
+
+    public int totalTokens() { return data.get(4); }
+
+    public boolean isPositive(int review) { return data.get(labelsStart + review) == 1; }
+
+    public int length(int review) { return data.get(offsetsStart + review + 1) - data.get(offsetsStart + review); }
+
+    /**
+     * @return the vocabulary indices of the first {@code maxLength} known words of a review
+     */
+    public int[] tokens(int review, int maxLength) {
+        int from = data.get(offsetsStart + review);
+        int[] out = new int[Math.min(maxLength, length(review))];
+        for (int i = 0; i < out.length; i++)
+            out[i] = data.get(tokensStart + from + i);
+        return out;
+    }
+}
@@ -0,0 +1,144 @@
+package org.deeplearning4j.datasets;
+
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-maps one shard written by ShardWriter. Minibatches are INDArrays over slices of the mapping, so reading
+ * one costs no deserialization and no copy: pages are faulted in from the page cache on first use.
+ *
+ * The mapping is private (copy-on-write): anything that modifies a returned array in place changes only this
+ * process's view of the page, never the file. Such changes do stay visible to later reads of the same minibatch,
+ * which is why ShardedDataSetIterator applies preprocessors to a copy.
+ *
+ * @author kepricon
+ */
+public class ShardReader implements Closeable {
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer mapped;
+    private final int numBatches;
+    private final int batchSize;
+    private final int flags;
+    private final int[][] shapes;
+    private final int[] examples;
+    private final long[] offsets;
+    private final long dataOffset;
+    private final long stride;
+
+    public ShardReader(File file) throws IOException {
+        if (Nd4j.dataType() != DataBuffer.Type.FLOAT)
+            throw new IllegalStateException("Shards hold float data, but the ND4J data type is " + Nd4j.dataType());
+
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel();
+        if (channel.size() > Integer.MAX_VALUE)
+            throw new IOException(file + " is larger than a single mapping (" + channel.size() + " bytes)");
+        this.mapped = channel.map(FileChannel.MapMode.PRIVATE, 0, channel.size());
+        mapped.order(ByteOrder.nativeOrder());
+
+        ByteBuffer header = mapped.duplicate().order(ByteOrder.nativeOrder());
+        int magic = header.getInt();
+        if (magic != ShardWriter.MAGIC)
+            throw new IOException(file + " is not a shard, or was written with a different byte order");
+        int version = header.getInt();
+        if (version != ShardWriter.VERSION)
+            throw new IOException(file + " has shard version " + version + ", expected " + ShardWriter.VERSION);
+
+        this.numBatches = header.getInt();
+        this.batchSize = header.getInt();
+        this.flags = header.getInt();
+        int numArrays = 2 + Integer.bitCount(flags & (ShardWriter.FLAG_FEATURES_MASK | ShardWriter.FLAG_LABELS_MASK));
+        this.shapes = new int[numArrays][];
+        this.offsets = new long[numArrays];
+        long bytes = 0;
+        for (int i = 0; i < numArrays; i++) {
+            shapes[i] = new int[header.getInt()];
+            for (int d = 0; d < shapes[i].length; d++)
+                shapes[i][d] = header.getInt();
+            offsets[i] = bytes;
+            bytes += ShardWriter.length(shapes[i]) * 4L;
+        }
+        this.stride = (bytes + ShardWriter.RECORD_ALIGNMENT - 1) / ShardWriter.RECORD_ALIGNMENT * ShardWriter.RECORD_ALIGNMENT;
+
+        // the header has room for the index of a full shard, so the data offset follows from the file size
+        int fixedHeader = header.position();
+        this.examples = new int[numBatches];
+        for (int i = 0; i < numBatches; i++)
+            examples[i] = header.getInt();
+        this.dataOffset = channel.size() - numBatches * stride;
+        if (dataOffset < fixedHeader + numBatches * 4L || dataOffset % ShardWriter.HEADER_ALIGNMENT != 0)
+            throw new IOException(file + " is truncated or corrupt");
+    }
+
+    public int numBatches() { return numBatches; }
+
+    public int batchSize() { return batchSize; }
+
+    public int examples(int batch) { return examples[batch]; }
+
+    public int[] featureShape() { return shapes[0].clone(); }
+
+    public int[] labelShape() { return shapes[1].clone(); }
+
+    /**
+     * @return minibatch number {@code batch} of this shard, backed by the mapped file
+     */
+    public DataSet get(int batch) {
+        if (batch < 0 || batch >= numBatches)
+            throw new IndexOutOfBoundsException("Minibatch " + batch + " of " + numBatches + " in " + file);
+
+        long record = dataOffset + batch * stride;
+        int n = examples[batch];
+        INDArray features = wrap(record + offsets[0], shapes[0], n);
+        INDArray labels = wrap(record + offsets[1], shapes[1], n);
+        INDArray featuresMask = null;
+        INDArray labelsMask = null;
+        int next = 2;
+        if ((flags & ShardWriter.FLAG_FEATURES_MASK) != 0) {
+            featuresMask = wrap(record + offsets[next], shapes[next], n);
+            next++;
+        }
+        if ((flags & ShardWriter.FLAG_LABELS_MASK) != 0)
+            labelsMask = wrap(record + offsets[next], shapes[next], n);
+        return new DataSet(features, labels, featuresMask, labelsMask);
+    }
+
+    /**
+     * Arrays are stored in 'c' order with the minibatch dimension first, so the first n examples of a zero padded
+     * record are a contiguous prefix.
+     */
+    private INDArray wrap(long position, int[] fullShape, int n) {
+        int[] shape = fullShape.clone();
+        shape[0] = n;
+        int length = ShardWriter.length(shape);
+
+        ByteBuffer slice = mapped.duplicate();
+        slice.position((int) position);
+        slice.limit((int) position + length * 4);
+        DataBuffer buffer = Nd4j.createBuffer(slice.slice().order(ByteOrder.nativeOrder()), DataBuffer.Type.FLOAT, length);
+        return Nd4j.create(buffer, shape);
+    }
+
+    /**
+     * Closes the file. The mapping itself is released only when this reader is garbage collected, so keep the
+     * reader referenced as long as arrays returned by {@link #get(int)} are in use.
+     */
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+}
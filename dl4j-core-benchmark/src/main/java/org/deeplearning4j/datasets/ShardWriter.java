@@ -0,0 +1,215 @@
+package org.deeplearning4j.datasets;
+
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSet;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Packs minibatches into a few large shard files (shard-0.bin, shard-1.bin, ...) instead of one DataSet.save file
+ * per minibatch, so that ShardReader can memory-map them and hand out INDArrays backed by the mapping.
+ *
+ * Shard layout, all values in native byte order:
+ * <pre>
+ *   header  int magic, int version, int numBatches, int batchSize, int flags (1: features mask, 2: labels mask),
+ *           for each array present (features, labels, features mask, labels mask): int rank, int[rank] shape of a
+ *           full minibatch,
+ *           int[numBatches] number of examples in each minibatch
+ *   padding up to a multiple of HEADER_ALIGNMENT
+ *   data    numBatches fixed-stride records: features, labels, features mask, labels mask as 'c' order floats,
+ *           each record padded to a multiple of RECORD_ALIGNMENT bytes
+ * </pre>
+ * Minibatches smaller than the first one (e.g. the last of an epoch) are written zero padded to the full stride.
+ *
+ * @author kepricon
+ */
+@Slf4j
+public class ShardWriter implements Closeable {
+    public static final String FILE_PATTERN = "shard-%d.bin";
+    public static final int MAGIC = 0x444C5348;
+    public static final int VERSION = 1;
+    public static final int HEADER_ALIGNMENT = 4096;
+    public static final int RECORD_ALIGNMENT = 64;
+    public static final int FLAG_FEATURES_MASK = 1;
+    public static final int FLAG_LABELS_MASK = 2;
+    /** keeps every shard within a single MappedByteBuffer */
+    public static final long DEFAULT_MAX_SHARD_BYTES = 1L << 30;
+
+    private final File dir;
+    private final long maxShardBytes;
+
+    private int[][] shapes;
+    private int flags;
+    private int batchSize;
+    private long stride;
+    private int batchesPerShard;
+    private int headerBytes;
+    private ByteBuffer record;
+
+    private int shardIndex = 0;
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private int[] examples;
+    private int batchesInShard;
+    private long totalBatches = 0;
+
+    public ShardWriter(File dir, long maxShardBytes) {
+        this.dir = dir;
+        this.maxShardBytes = maxShardBytes;
+        dir.mkdirs();
+    }
+
+    public ShardWriter(File dir) {
+        this(dir, DEFAULT_MAX_SHARD_BYTES);
+    }
+
+    /**
+     * Append one minibatch. The first minibatch fixes the layout; later ones must have the same per-example shapes
+     * and masks, and at most as many examples.
+     */
+    public void write(DataSet ds) throws IOException {
+        INDArray[] arrays = arrays(ds);
+        if (shapes == null)
+            initLayout(arrays, flags(ds));
+
+        int n = arrays[0].size(0);
+        if (flags(ds) != flags || n > batchSize)
+            throw new IllegalArgumentException("Minibatch " + totalBatches + " of " + n + " examples does not match the shard layout");
+        for (int i = 0; i < arrays.length; i++) {
+            if (!sameExampleShape(arrays[i].shape(), shapes[i]) || arrays[i].size(0) != n)
+                throw new IllegalArgumentException("Minibatch " + totalBatches + " does not match the shard layout "
+                        + Arrays.deepToString(shapes) + " (array " + i + ": " + Arrays.toString(arrays[i].shape()) + ")");
+        }
+
+        if (channel == null || batchesInShard == batchesPerShard)
+            nextShard();
+
+        record.clear();
+        if (n < batchSize) {
+            // zero padding instead of whatever the previous minibatch left in the buffer
+            while (record.remaining() >= 8)
+                record.putLong(0L);
+            record.clear();
+        }
+        int offset = 0;
+        for (int i = 0; i < arrays.length; i++) {
+            record.position(offset);
+            record.asFloatBuffer().put(arrays[i].dup('c').data().asFloat());
+            offset += length(shapes[i]) * 4;
+        }
+        record.position(0);
+        channel.write(record, headerBytes + batchesInShard * stride);
+
+        examples[batchesInShard++] = n;
+        totalBatches++;
+    }
+
+    public long totalBatches() { return totalBatches; }
+
+    @Override
+    public void close() throws IOException {
+        finishShard();
+    }
+
+    private void initLayout(INDArray[] arrays, int flags) {
+        this.batchSize = arrays[0].size(0);
+        this.flags = flags;
+        shapes = new int[arrays.length][];
+        long bytes = 0;
+        for (int i = 0; i < arrays.length; i++) {
+            shapes[i] = arrays[i].shape().clone();
+            bytes += length(shapes[i]) * 4L;
+        }
+        stride = (bytes + RECORD_ALIGNMENT - 1) / RECORD_ALIGNMENT * RECORD_ALIGNMENT;
+        if (stride > Integer.MAX_VALUE || stride + HEADER_ALIGNMENT > maxShardBytes)
+            throw new IllegalArgumentException("Minibatch of " + stride + " bytes does not fit a shard of " + maxShardBytes + " bytes");
+
+        int fixedHeader = 5 * 4;
+        for (int[] shape : shapes)
+            fixedHeader += (1 + shape.length) * 4;
+        // the index takes 4 bytes per minibatch, so size the shard for its records and index together
+        batchesPerShard = (int) Math.min(Integer.MAX_VALUE / 4, (maxShardBytes - fixedHeader - HEADER_ALIGNMENT) / (stride + 4));
+        headerBytes = align(fixedHeader + batchesPerShard * 4, HEADER_ALIGNMENT);
+        record = ByteBuffer.allocateDirect((int) stride).order(ByteOrder.nativeOrder());
+        examples = new int[batchesPerShard];
+
+        log.info("Shard layout {}: {} bytes per minibatch, up to {} minibatches per shard", Arrays.deepToString(shapes), stride, batchesPerShard);
+    }
+
+    private void nextShard() throws IOException {
+        finishShard();
+        file = new RandomAccessFile(new File(dir, String.format(FILE_PATTERN, shardIndex++)), "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+        batchesInShard = 0;
+        Arrays.fill(examples, 0);
+    }
+
+    private void finishShard() throws IOException {
+        if (channel == null)
+            return;
+
+        ByteBuffer header = ByteBuffer.allocate(headerBytes).order(ByteOrder.nativeOrder());
+        header.putInt(MAGIC).putInt(VERSION).putInt(batchesInShard).putInt(batchSize).putInt(flags);
+        for (int[] shape : shapes) {
+            header.putInt(shape.length);
+            for (int d : shape)
+                header.putInt(d);
+        }
+        for (int i = 0; i < batchesInShard; i++)
+            header.putInt(examples[i]);
+        header.position(0);
+        channel.write(header, 0);
+
+        channel.force(false);
+        file.close();
+        channel = null;
+        file = null;
+    }
+
+    private static INDArray[] arrays(DataSet ds) {
+        List<INDArray> arrays = new ArrayList<>(4);
+        arrays.add(ds.getFeatures());
+        arrays.add(ds.getLabels());
+        if (ds.getFeaturesMaskArray() != null)
+            arrays.add(ds.getFeaturesMaskArray());
+        if (ds.getLabelsMaskArray() != null)
+            arrays.add(ds.getLabelsMaskArray());
+        return arrays.toArray(new INDArray[arrays.size()]);
+    }
+
+    private static int flags(DataSet ds) {
+        return (ds.getFeaturesMaskArray() != null ? FLAG_FEATURES_MASK : 0) | (ds.getLabelsMaskArray() != null ? FLAG_LABELS_MASK : 0);
+    }
+
+    private static boolean sameExampleShape(int[] shape, int[] layout) {
+        if (shape.length != layout.length)
+            return false;
+        for (int i = 1; i < shape.length; i++) {
+            if (shape[i] != layout[i])
+                return false;
+        }
+        return true;
+    }
+
+    static int length(int[] shape) {
+        int length = 1;
+        for (int d : shape)
+            length *= d;
+        return length;
+    }
+
+    static int align(int value, int alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+}
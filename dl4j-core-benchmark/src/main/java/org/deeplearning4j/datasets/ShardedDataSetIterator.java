@@ -0,0 +1,158 @@
+package org.deeplearning4j.datasets;
+
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * DataSetIterator over the shards ShardWriter wrote to a directory, in the order they were written. Minibatches are
+ * views of the memory-mapped shards (see ShardReader); the readers stay open for the lifetime of the iterator.
+ *
+ * @author kepricon
+ */
+public class ShardedDataSetIterator implements DataSetIterator {
+
+    private final List<ShardReader> shards = new ArrayList<>();
+    private final int batchSize;
+    private final int totalBatches;
+    private final int totalExamples;
+    private final List<String> labels = new ArrayList<>();
+    private DataSetPreProcessor preProcessor;
+
+    private int shard = 0;
+    private int batch = 0;
+    private int examplesReturned = 0;
+
+    public ShardedDataSetIterator(File dir) throws IOException {
+        File file;
+        while ((file = new File(dir, String.format(ShardWriter.FILE_PATTERN, shards.size()))).exists())
+            shards.add(new ShardReader(file));
+        if (shards.isEmpty())
+            throw new IOException("No shards found in " + dir.getAbsolutePath());
+
+        int batches = 0;
+        int examples = 0;
+        for (ShardReader reader : shards) {
+            batches += reader.numBatches();
+            for (int i = 0; i < reader.numBatches(); i++)
+                examples += reader.examples(i);
+        }
+        this.batchSize = shards.get(0).batchSize();
+        this.totalBatches = batches;
+        this.totalExamples = examples;
+        for (int i = 0; i < totalOutcomes(); i++)
+            labels.add(String.valueOf(i));
+    }
+
+    /**
+     * @return true if ShardWriter wrote shards to dir
+     */
+    public static boolean isShardDir(File dir) {
+        return new File(dir, String.format(ShardWriter.FILE_PATTERN, 0)).exists();
+    }
+
+    public int numBatches() { return totalBatches; }
+
+    @Override
+    public DataSet next(int num) {
+        throw new UnsupportedOperationException("Shards are stored in minibatches of " + batchSize);
+    }
+
+    @Override
+    public DataSet next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        DataSet ds = shards.get(shard).get(batch++);
+        examplesReturned += ds.numExamples();
+
+        if (preProcessor != null) {
+            // in-place preprocessing would otherwise accumulate in the mapping across epochs
+            ds = ds.copy();
+            preProcessor.preProcess(ds);
+        }
+        return ds;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (shard < shards.size() && batch >= shards.get(shard).numBatches()) {
+            shard++;
+            batch = 0;
+        }
+        return shard < shards.size();
+    }
+
+    @Override
+    public int totalExamples() {
+        return totalExamples;
+    }
+
+    @Override
+    public int inputColumns() {
+        return shards.get(0).featureShape()[1];
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return shards.get(0).labelShape()[1];
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        shard = 0;
+        batch = 0;
+        examplesReturned = 0;
+    }
+
+    @Override
+    public int batch() {
+        return batchSize;
+    }
+
+    @Override
+    public int cursor() {
+        return examplesReturned;
+    }
+
+    @Override
+    public int numExamples() {
+        return totalExamples;
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    @Override
+    public void remove() {
+
+    }
+}
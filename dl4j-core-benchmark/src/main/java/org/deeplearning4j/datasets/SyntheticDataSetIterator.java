@@ -0,0 +1,170 @@
+package org.deeplearning4j.datasets;
+
+import org.deeplearning4j.models.ModelType;
+import org.deeplearning4j.models.SyntheticInputs;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * DataSetIterator over random data shaped for one ModelType, for compute-only benchmarks without any dataset or ETL.
+ *
+ * A small ring of feature/label (and, for W2VSentiment, mask) arrays is allocated once in the constructor and handed
+ * out in turn, so next() performs no allocation: every epoch returns the same DataSet instances. Consumers must not
+ * modify the returned arrays in place.
+ *
+ * @author kepricon
+ */
+public class SyntheticDataSetIterator implements DataSetIterator {
+    public static final int DEFAULT_RING_SIZE = 4;
+
+    private final DataSet[] ring;
+    private final int batchSize;
+    private final int numBatches;
+    private final int inputColumns;
+    private final int totalOutcomes;
+    private final List<String> labels = new ArrayList<>();
+    private DataSetPreProcessor preProcessor;
+
+    private int cursor = 0;
+
+    /**
+     * @param modelType  model the inputs are shaped for (see SyntheticInputs)
+     * @param batchSize  minibatch size
+     * @param channels   channels per example
+     * @param height     height per example (sequence length for W2VSENTIMENT)
+     * @param width      width per example
+     * @param numLabels  number of classes
+     * @param numBatches minibatches per epoch
+     * @param ringSize   number of distinct minibatches allocated up front
+     * @param seed       random seed
+     */
+    public SyntheticDataSetIterator(ModelType modelType, int batchSize, int channels, int height, int width, int numLabels,
+                                    int numBatches, int ringSize, long seed) {
+        if (numBatches < 1 || ringSize < 1)
+            throw new IllegalArgumentException("numBatches and ringSize must be positive, got " + numBatches + " and " + ringSize);
+
+        this.batchSize = batchSize;
+        this.numBatches = numBatches;
+        this.ring = new DataSet[Math.min(ringSize, numBatches)];
+        for (int i = 0; i < ring.length; i++) {
+            DataSet ds = SyntheticInputs.create(modelType, batchSize, channels, height, width, numLabels, seed + i);
+            if (ds.getFeatures().rank() == 3) {
+                // time series: every step present, single output at the final step, like SentimentExampleIterator
+                int timeSteps = ds.getFeatures().size(2);
+                INDArray labelsMask = Nd4j.zeros(batchSize, timeSteps);
+                for (int j = 0; j < batchSize; j++)
+                    labelsMask.putScalar(j, timeSteps - 1, 1.0);
+                ds.setFeaturesMaskArray(Nd4j.ones(batchSize, timeSteps));
+                ds.setLabelsMaskArray(labelsMask);
+            }
+            ring[i] = ds;
+        }
+
+        int[] featureShape = ring[0].getFeatures().shape();
+        this.inputColumns = featureShape.length == 2 ? featureShape[1] : ring[0].getFeatures().size(1);
+        this.totalOutcomes = ring[0].getLabels().size(1);
+        for (int i = 0; i < totalOutcomes; i++)
+            labels.add(String.valueOf(i));
+    }
+
+    public SyntheticDataSetIterator(ModelType modelType, int batchSize, int channels, int height, int width, int numLabels, int numBatches) {
+        this(modelType, batchSize, channels, height, width, numLabels, numBatches, DEFAULT_RING_SIZE, 42);
+    }
+
+    @Override
+    public DataSet next(int num) {
+        if (num != batchSize)
+            throw new UnsupportedOperationException("Synthetic minibatches are preallocated with batch size " + batchSize);
+        return next();
+    }
+
+    @Override
+    public DataSet next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        return ring[cursor++ % ring.length];
+    }
+
+    @Override
+    public boolean hasNext() {
+        return cursor < numBatches;
+    }
+
+    @Override
+    public int totalExamples() {
+        return numBatches * batchSize;
+    }
+
+    @Override
+    public int inputColumns() {
+        return inputColumns;
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return totalOutcomes;
+    }
+
+    @Override
+    public void reset() {
+        cursor = 0;
+    }
+
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return true;
+    }
+
+    @Override
+    public int batch() {
+        return batchSize;
+    }
+
+    @Override
+    public int cursor() {
+        return cursor * batchSize;
+    }
+
+    @Override
+    public int numExamples() {
+        return totalExamples();
+    }
+
+    /**
+     * The preprocessor is applied once to every preallocated minibatch, not on each next().
+     */
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+        if (preProcessor != null) {
+            for (DataSet ds : ring)
+                preProcessor.preProcess(ds);
+        }
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    @Override
+    public void remove() {
+
+    }
+}
@@ -10,10 +10,7 @@ import org.datavec.api.io.labels.PathLabelGenerator;
 import org.datavec.api.split.FileSplit;
 import org.datavec.api.writable.Text;
 import org.datavec.api.writable.Writable;
-import org.datavec.image.recordreader.ImageRecordReader;
-import org.deeplearning4j.datasets.datavec.RecordReaderDataSetIterator;
 import org.deeplearning4j.util.ArchiveUtils;
-import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
 
 import java.io.*;
@@ -21,8 +18,6 @@ import java.net.URI;
 import java.net.URL;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 /**
  * Created by kepricon on 17. 4. 1.
@@ -38,6 +33,8 @@ public class TinyImageNetDataSetBuilder {
     private static final String VALIDATION_DIR = DATA_ROOT_DIR + "val/";
     private static final String VALIDATION_ANNOTATION_FILE = DATA_ROOT_DIR + "val/val_annotations.txt";
     private static final String[] allowedExtensions = new String[]{"JPEG"};
+    private static final String LABEL_ID_ENTRY = "tiny-imagenet-200/wnids.txt";
+    private static final String TRAIN_ENTRY_PREFIX = "tiny-imagenet-200/train/";
 
     @Parameter(names = {"-w","--width"}, description = "WIDTH_SIZE")
     private static int width = 160;
@@ -49,6 +46,10 @@ public class TinyImageNetDataSetBuilder {
     private static int batchSize = 32;
     @Parameter(names = {"-m","--maxBatch"}, description = "MAX_EXAMPLE_BATCH_SIZE")
     private static int maxExampleBatches = Integer.MAX_VALUE;
+    @Parameter(names = {"-sh","--shards"}, description = "Write memory-mappable shards (ShardWriter) instead of one file per minibatch")
+    private static boolean shards = false;
+    @Parameter(names = {"-t","--threads"}, description = "Threads decoding and resizing images")
+    private static int numThreads = Runtime.getRuntime().availableProcessors();
 
     public static final String DATASETNAME = "tiny";
     public static final int numLabels = 200;
@@ -77,42 +78,29 @@ public class TinyImageNetDataSetBuilder {
 
         if(new File(TRAIN_PATH).exists() == false){
 
-            Random r = new Random(12345);
-            FileSplit trainSplit = new FileSplit(new File(TRAIN_DIR), allowedExtensions, r);
-            FileSplit valSplit = new FileSplit(new File(VALIDATION_DIR), allowedExtensions, r);
-
-            List<String> labelIDs = loadLabels(LABEL_ID_FILE);
-            List<String> labelNames = loadLabelNames(labelIDs, LABEL_NAME_FILE);
-
-            log.info("Loading data...");
-            ImageRecordReader trainReader = new ImageRecordReader(height,width,channel,new TrainLabelGenerator(labelIDs));
-            trainReader.initialize(trainSplit);
-            trainReader.setLabels(labelIDs);
-            ImageRecordReader testReader = new ImageRecordReader(height,width,channel, new ValidationLabelGenerator(labelIDs, VALIDATION_ANNOTATION_FILE));
-            testReader.initialize(valSplit);
-            testReader.setLabels(labelIDs);
-
-
-            DataSetIterator trainData = new RecordReaderDataSetIterator(trainReader, batchSize, 1, numLabels);
-            DataSetIterator testData = new RecordReaderDataSetIterator(testReader, batchSize, 1, numLabels);
-            trainData.setPreProcessor(new ImagePreProcessingScaler(-1,1,8));
-            testData.setPreProcessor(new ImagePreProcessingScaler(-1,1,8));
-
-            log.info("create train datasets in " + TRAIN_PATH);
-            new File(TRAIN_PATH).mkdirs();
-
-            AtomicInteger counter = new AtomicInteger(0);
-            while(trainData.hasNext()){
-                if (counter.intValue() > maxExampleBatches) {
-                    break;
-                }
-                String path = FilenameUtils.concat(TRAIN_PATH, "dataset-" + (counter.getAndIncrement()) + ".bin");
-                trainData.next().save(new File(path));
-
-                if (counter.get() % 100 == 0) {
-                    log.info("{} datasets saved so far...", counter.get());
-                }
+            // images are decoded straight from the archive, nothing is extracted
+            File zip = zipFile();
+            List<String> locations = ZipImageDataSetIterator.listEntries(zip, TRAIN_ENTRY_PREFIX, allowedExtensions, new Random(12345));
+            List<String> labelIDs = new ArrayList<>();
+            for (String s : ZipImageDataSetIterator.readLines(zip, LABEL_ID_ENTRY)) {
+                if (s.length() > 0)
+                    labelIDs.add(s);
             }
+            log.info("Loading data from " + zip.getAbsolutePath() + ": " + locations.size() + " images");
+
+            log.info("create train datasets in " + TRAIN_PATH + " with " + numThreads + " threads");
+            ParallelDataSetWriter writer = new ParallelDataSetWriter(new File(TRAIN_PATH), shards, numThreads, 2 * numThreads,
+                    maxExampleBatches + 1L, "images", 100);
+            // contiguous partitions of whole minibatches, so only the last minibatch of the last partition is short
+            int batches = (locations.size() + batchSize - 1) / batchSize;
+            int batchesPerThread = (batches + numThreads - 1) / numThreads;
+            for (int t = 0; t < numThreads; t++) {
+                int from = Math.min(locations.size(), t * batchesPerThread * batchSize);
+                int to = Math.min(locations.size(), from + batchesPerThread * batchSize);
+                if (from < to)
+                    writer.submit(new PartitionTask(zip, locations.subList(from, to), labelIDs));
+            }
+            writer.await();
 
 //            log.info("create test datasets in " + TEST_PATH);
 //            new File(TEST_PATH).mkdirs();
@@ -130,6 +118,36 @@ public class TinyImageNetDataSetBuilder {
         }
     }
 
+    /**
+     * Decodes, resizes and scales one partition of the archive's images on a worker thread, through its own ZipFile.
+     */
+    private static class PartitionTask implements ParallelDataSetWriter.Task {
+        private final File zip;
+        private final List<String> entries;
+        private final List<String> labelIDs;
+
+        private PartitionTask(File zip, List<String> entries, List<String> labelIDs) {
+            this.zip = zip;
+            this.entries = entries;
+            this.labelIDs = labelIDs;
+        }
+
+        @Override
+        public void run(ParallelDataSetWriter writer) throws Exception {
+            ZipImageDataSetIterator data = new ZipImageDataSetIterator(zip, entries, new TrainLabelGenerator(labelIDs), labelIDs,
+                    batchSize, height, width, channel);
+            try {
+                data.setPreProcessor(new ImagePreProcessingScaler(-1,1,8));
+                while (data.hasNext()) {
+                    if (!writer.put(data.next()))
+                        break;
+                }
+            } finally {
+                data.close();
+            }
+        }
+    }
+
     public static String getTrainPath(int height, int width, int batchSize){
         StringBuffer sb = new StringBuffer();
         sb.append("dl4j_");
@@ -152,6 +170,10 @@ public class TinyImageNetDataSetBuilder {
         return FilenameUtils.concat(System.getProperty("java.io.tmpdir"), sb.toString());
     }
 
+    private static File zipFile() {
+        return new File(DATA_PATH, "tiny-imagenet-200.zip");
+    }
+
     private static void downloadData() throws Exception{
 
         File directory = new File(DATA_PATH);
@@ -159,45 +181,13 @@ public class TinyImageNetDataSetBuilder {
             directory.mkdirs();
         }
 
-        File zipFile = new File(DATA_PATH, "tiny-imagenet-200.zip");
+        File zipFile = zipFile();
 
         if (false == zipFile.exists()){
             log.info("Starting data download (248MB) ...");
             FileUtils.copyURLToFile(new URL(DATA_URL), zipFile);
             log.info("Data (.zip file) downloaded to " + zipFile.getAbsolutePath());
-            extractZip(zipFile.getAbsolutePath(), DATA_PATH);
-        }
-    }
-
-
-    private static final int BUFFER_SIZE = 4096;
-    private static void extractZip(String filePath, String outputPath) throws IOException {
-        int fileCount = 0;
-        int dirCount = 0;
-        log.info("Extracting files");
-
-        try(ZipInputStream zis = new ZipInputStream(new FileInputStream(filePath))){
-            ZipEntry entry;
-
-            while ((entry = zis.getNextEntry()) != null){
-                if(entry.isDirectory()){
-                    new File(outputPath, entry.getName()).mkdirs();
-                    dirCount++;
-                }else {
-                    int count;
-                    byte data[] = new byte[BUFFER_SIZE];
-
-                    FileOutputStream fos = new FileOutputStream(new File(outputPath, entry.getName()));
-                    BufferedOutputStream dest = new BufferedOutputStream(fos,BUFFER_SIZE);
-                    while ((count = zis.read(data, 0, BUFFER_SIZE)) != -1) {
-                        dest.write(data, 0, count);
-                    }
-                    dest.close();
-                    fileCount++;
-                }
-            }
         }
-        log.info("\n" + fileCount + " files and " + dirCount + " directories extracted to: " + outputPath);
     }
 
     public static List<String> loadLabels(String path) throws IOException {
@@ -9,8 +9,6 @@ import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.deeplearning4j.models.embeddings.loader.WordVectorSerializer;
-import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
-import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.slf4j.Logger;
 
 import java.io.*;
@@ -37,12 +35,37 @@ public class W2VSentimentDataSetsBuilder {
     public static final String TRAIN_PATH = FilenameUtils.concat(System.getProperty("java.io.tmpdir"), "dl4j_w2vSentiment_train/");
     public static final String TEST_PATH = FilenameUtils.concat(System.getProperty("java.io.tmpdir"), "dl4j_w2vSentiment_test/");
 
+    /** Location of the tokenized reviews (SentimentTokenCache) of the train or test set */
+    public static File tokenCacheFile(boolean train) {
+        return new File(DATA_PATH, "tokens-" + (train ? "train" : "test") + ".bin");
+    }
+
+    /**
+     * Word vectors of a word2vec binary file, memory-mapped through MappedWordVectors (converted on first use into
+     * DATA_PATH), or loaded onto the heap by WordVectorSerializer if {@code heap} is set.
+     */
+    public static WordVectorLookup loadWordVectors(String path, boolean heap) throws IOException {
+        if (heap)
+            return new HeapWordVectors(WordVectorSerializer.loadStaticModel(new File(path)));
+        String name = FilenameUtils.getBaseName(FilenameUtils.removeExtension(path));
+        return MappedWordVectors.fromBinary(new File(path), new File(DATA_PATH, name + ".mapped"));
+    }
+
     @Parameter(names = {"-b","--batch"}, description = "BatchSize")
     private int batchSize = 64;
 
     @Parameter(names = {"-l","--length"}, description = "Truncate max review length to")
     private int truncateReviewsToLength = 256;
 
+    @Parameter(names = {"-sh","--shards"}, description = "Write memory-mappable shards (ShardWriter) instead of one file per minibatch; minibatches are then padded to --length")
+    private boolean shards = false;
+
+    @Parameter(names = {"-t","--threads"}, description = "Threads tokenizing and embedding reviews")
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = {"-hv","--heapVectors"}, description = "Load the word vectors onto the heap instead of memory-mapping them (MappedWordVectors)")
+    private boolean heapVectors = false;
+
     public void run(String[] args) throws Exception {
         JCommander jcmdr = new JCommander(this);
         try {
@@ -63,9 +86,12 @@ public class W2VSentimentDataSetsBuilder {
 
         downloadData();
 
-        WordVectors wordVectors = WordVectorSerializer.loadStaticModel(new File(WORD_VECTORS_PATH));
+        WordVectorLookup wordVectors = loadWordVectors(WORD_VECTORS_PATH, heapVectors);
         SentimentExampleIterator train = new SentimentExampleIterator(DATA_PATH, wordVectors, batchSize, truncateReviewsToLength, true);
         SentimentExampleIterator test = new SentimentExampleIterator(DATA_PATH, wordVectors, batchSize, truncateReviewsToLength, false);
+        // shards have one layout for all minibatches, so the time axis cannot follow each minibatch's longest review
+        train.setPadToTruncateLength(shards);
+        test.setPadToTruncateLength(shards);
 
         log.info("Saving test data...");
         saveDatasets(test, TEST_PATH);
@@ -74,7 +100,7 @@ public class W2VSentimentDataSetsBuilder {
         saveDatasets(train, TRAIN_PATH);
     }
 
-    private static void downloadData() throws Exception {
+    public static void downloadData() throws Exception {
         //Create directory if required
         File directory = new File(DATA_PATH);
         if(!directory.exists()) directory.mkdir();
@@ -139,16 +165,29 @@ public class W2VSentimentDataSetsBuilder {
         System.out.println("\n" + fileCount + " files and " + dirCount + " directories extracted to: " + outputPath);
     }
 
-    protected void saveDatasets(DataSetIterator iterator, String dir) {
-        AtomicInteger counter = new AtomicInteger(0);
-        new File(dir).mkdirs();
-        while (iterator.hasNext()) {
-            String path = FilenameUtils.concat(dir, "dataset-" + (counter.getAndIncrement()) + ".bin");
-            iterator.next().save(new File(path));
-
-            if (counter.get() % 500 == 0)
-                log.info("{} datasets saved so far...", counter.get());
+    /**
+     * Tokenize and embed minibatches on numThreads threads; each thread takes the next unclaimed minibatch index, so
+     * the files are numbered in completion order rather than in corpus order.
+     */
+    protected void saveDatasets(final SentimentExampleIterator iterator, String dir) throws Exception {
+        final int numBatches = (iterator.totalExamples() + batchSize - 1) / batchSize;
+        final AtomicInteger nextBatch = new AtomicInteger(0);
+
+        ParallelDataSetWriter writer = new ParallelDataSetWriter(new File(dir), shards, numThreads, 2 * numThreads,
+                Long.MAX_VALUE, "reviews", 500);
+        for (int t = 0; t < numThreads; t++) {
+            writer.submit(new ParallelDataSetWriter.Task() {
+                @Override
+                public void run(ParallelDataSetWriter writer) throws Exception {
+                    int batch;
+                    while ((batch = nextBatch.getAndIncrement()) < numBatches) {
+                        if (!writer.put(iterator.loadBatch(batch * batchSize, batchSize)))
+                            break;
+                    }
+                }
+            });
         }
+        writer.await();
     }
 
 
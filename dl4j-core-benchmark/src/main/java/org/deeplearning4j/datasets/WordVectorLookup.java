@@ -0,0 +1,34 @@
+package org.deeplearning4j.datasets;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+/**
+ * The word vector operations the sentiment pipeline needs: map a word to its vocabulary index and an index to its
+ * vector. Implemented by MappedWordVectors, and by HeapWordVectors over any DL4J WordVectors, so the memory-mapped
+ * vectors do not have to pretend to support the rest of WordVectors (nearest words, VocabCache, lookup table).
+ *
+ * @author kepricon
+ */
+public interface WordVectorLookup {
+
+    int numWords();
+
+    int vectorSize();
+
+    /**
+     * @return vocabulary index of {@code word}, or -1 if it is unknown
+     */
+    int indexOf(String word);
+
+    boolean hasWord(String word);
+
+    /**
+     * @return the vector of the word at vocabulary index {@code index}, as a row vector
+     */
+    INDArray vectorAt(int index);
+
+    /**
+     * @return the vector of {@code word} as a row vector, or null if it is unknown
+     */
+    INDArray getWordVectorMatrix(String word);
+}
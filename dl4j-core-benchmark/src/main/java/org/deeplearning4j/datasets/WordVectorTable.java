@@ -0,0 +1,88 @@
+package org.deeplearning4j.datasets;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.Arrays;
+
+/**
+ * Dense [rows, vectorSize] lookup table holding the vectors of the words seen so far, so a whole minibatch can be
+ * gathered with one Nd4j.pullRows instead of one getWordVectorMatrix and put per token. The full Google News
+ * matrix (3M x 300 floats) is too large to keep on the heap, and the IMDB reviews only use ~100k distinct words,
+ * so vectors are copied in from the word vectors once, the first time a word occurs. Row 0 is all zeros and stands for
+ * padding.
+ *
+ * Safe to call from several threads: rows are only ever appended, and the table is swapped for a larger copy when
+ * it fills up, so the table returned by {@link #table()} after {@link #rows} holds all the rows it returned.
+ *
+ * @author kepricon
+ */
+public class WordVectorTable {
+    public static final int PADDING_ROW = 0;
+    private static final int INITIAL_CAPACITY = 1 << 14;
+
+    private final WordVectorLookup wordVectors;
+    private final int vectorSize;
+    private int[] rowOf;
+    private int numRows = 1;
+    private volatile INDArray table;
+
+    public WordVectorTable(WordVectorLookup wordVectors, int vectorSize) {
+        this.wordVectors = wordVectors;
+        this.vectorSize = vectorSize;
+        this.rowOf = new int[INITIAL_CAPACITY];
+        this.table = Nd4j.zeros(INITIAL_CAPACITY, vectorSize);
+    }
+
+    /**
+     * Table rows of the first {@code maxLength} words of every review, row-major as [review, time step], with
+     * {@link #PADDING_ROW} past the end of shorter reviews. Copies in the vectors of words not seen before.
+     */
+    public synchronized int[] rows(int[][] allTokens, int maxLength) {
+        int[] out = new int[allTokens.length * maxLength];
+        for (int i = 0; i < allTokens.length; i++) {
+            int[] tokens = allTokens[i];
+            for (int j = 0; j < tokens.length && j < maxLength; j++)
+                out[i * maxLength + j] = row(tokens[j]);
+        }
+        return out;
+    }
+
+    /**
+     * @return the current table; rows returned by {@link #rows} before this call are valid in it
+     */
+    public INDArray table() {
+        return table;
+    }
+
+    public synchronized int numRows() {
+        return numRows;
+    }
+
+    /**
+     * @return a copy of the rows filled so far, [numRows, vectorSize]
+     */
+    public synchronized INDArray embeddings() {
+        return table.get(NDArrayIndex.interval(0, numRows), NDArrayIndex.all()).dup();
+    }
+
+    private int row(int vocabIndex) {
+        if (vocabIndex >= rowOf.length)
+            rowOf = Arrays.copyOf(rowOf, Math.max(vocabIndex + 1, rowOf.length * 2));
+        int row = rowOf[vocabIndex];
+        if (row != 0)
+            return row;
+
+        INDArray current = table;
+        if (numRows == current.rows()) {
+            INDArray grown = Nd4j.zeros(current.rows() * 2, vectorSize);
+            grown.get(NDArrayIndex.interval(0, current.rows()), NDArrayIndex.all()).assign(current);
+            table = current = grown;
+        }
+        row = numRows++;
+        current.putRow(row, wordVectors.vectorAt(vocabIndex));
+        rowOf[vocabIndex] = row;
+        return row;
+    }
+}
@@ -0,0 +1,220 @@
+package org.deeplearning4j.datasets;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.datavec.api.io.labels.PathLabelGenerator;
+import org.datavec.image.loader.NativeImageLoader;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * DataSetIterator that decodes images straight out of a zip archive, without extracting it: entries are located
+ * through the archive's central directory (ZipFile), inflated into memory and decoded by NativeImageLoader.
+ * Features are [minibatch, channels, height, width] with pixel values 0-255, like ImageRecordReader; labels are
+ * one-hot over the given label list, taken from each entry's path by a PathLabelGenerator.
+ *
+ * Each iterator opens its own ZipFile, so several iterators over disjoint entry ranges of the same archive decode
+ * in parallel (see TinyImageNetDataSetBuilder). A single iterator is not thread safe. Close it when done to release
+ * the ZipFile.
+ *
+ * @author kepricon
+ */
+public class ZipImageDataSetIterator implements DataSetIterator, Closeable {
+
+    private final ZipFile zipFile;
+    private final List<String> entries;
+    private final List<String> labels;
+    private final Map<String, Integer> labelIndex = new HashMap<>();
+    private final PathLabelGenerator labelGenerator;
+    private final int batchSize;
+    private final int height;
+    private final int width;
+    private final int channels;
+    private final NativeImageLoader loader;
+    private DataSetPreProcessor preProcessor;
+
+    private int cursor = 0;
+
+    /**
+     * @param zip            the archive
+     * @param entries        names of the image entries to iterate over, in order
+     * @param labelGenerator label of an entry, from its name
+     * @param labels         all labels, in one-hot order
+     */
+    public ZipImageDataSetIterator(File zip, List<String> entries, PathLabelGenerator labelGenerator, List<String> labels,
+                                   int batchSize, int height, int width, int channels) throws IOException {
+        this.zipFile = new ZipFile(zip);
+        this.entries = entries;
+        this.labelGenerator = labelGenerator;
+        this.labels = labels;
+        this.batchSize = batchSize;
+        this.height = height;
+        this.width = width;
+        this.channels = channels;
+        this.loader = new NativeImageLoader(height, width, channels);
+        for (int i = 0; i < labels.size(); i++)
+            labelIndex.put(labels.get(i), i);
+    }
+
+    /**
+     * Names of the file entries under {@code prefix} with one of the given extensions (case insensitive), shuffled
+     * with {@code rng} if it is not null. Reads only the central directory.
+     */
+    public static List<String> listEntries(File zip, String prefix, String[] extensions, Random rng) throws IOException {
+        Set<String> allowed = new HashSet<>();
+        for (String extension : extensions)
+            allowed.add(extension.toLowerCase());
+
+        List<String> out = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            Enumeration<? extends ZipEntry> e = zipFile.entries();
+            while (e.hasMoreElements()) {
+                ZipEntry entry = e.nextElement();
+                if (!entry.isDirectory() && entry.getName().startsWith(prefix)
+                        && allowed.contains(FilenameUtils.getExtension(entry.getName()).toLowerCase()))
+                    out.add(entry.getName());
+            }
+        }
+        Collections.sort(out);
+        if (rng != null)
+            Collections.shuffle(out, rng);
+        return out;
+    }
+
+    /**
+     * Lines of a text entry, e.g. a label file that ships inside the archive.
+     */
+    public static List<String> readLines(File zip, String entryName) throws IOException {
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            ZipEntry entry = zipFile.getEntry(entryName);
+            if (entry == null)
+                throw new IOException("No entry " + entryName + " in " + zip.getAbsolutePath());
+            try (InputStream is = zipFile.getInputStream(entry)) {
+                return IOUtils.readLines(is, "UTF-8");
+            }
+        }
+    }
+
+    @Override
+    public DataSet next(int num) {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        int n = Math.min(num, entries.size() - cursor);
+        INDArray features = Nd4j.create(n, channels, height, width);
+        INDArray labelArr = Nd4j.zeros(n, labels.size());
+        for (int i = 0; i < n; i++) {
+            String name = entries.get(cursor++);
+            try (InputStream is = zipFile.getInputStream(zipFile.getEntry(name))) {
+                INDArray image = loader.asMatrix(is);
+                features.put(new INDArrayIndex[]{NDArrayIndex.point(i), NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.all()},
+                        image.reshape(channels, height, width));
+            } catch (IOException e) {
+                throw new RuntimeException("Could not decode " + name, e);
+            }
+
+            Integer label = labelIndex.get(labelGenerator.getLabelForPath(name).toString());
+            if (label == null)
+                throw new IllegalStateException("Unknown label for " + name);
+            labelArr.putScalar(i, label, 1.0);
+        }
+
+        DataSet ds = new DataSet(features, labelArr);
+        if (preProcessor != null)
+            preProcessor.preProcess(ds);
+        return ds;
+    }
+
+    @Override
+    public DataSet next() {
+        return next(batchSize);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return cursor < entries.size();
+    }
+
+    @Override
+    public int totalExamples() {
+        return entries.size();
+    }
+
+    @Override
+    public int inputColumns() {
+        return height * width * channels;
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return labels.size();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        cursor = 0;
+    }
+
+    @Override
+    public int batch() {
+        return batchSize;
+    }
+
+    @Override
+    public int cursor() {
+        return cursor;
+    }
+
+    @Override
+    public int numExamples() {
+        return totalExamples();
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    @Override
+    public void remove() {
+
+    }
+
+    @Override
+    public void close() throws IOException {
+        zipFile.close();
+    }
+}
@@ -0,0 +1,77 @@
+package org.deeplearning4j.listeners;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reporting for the training batch size autotune: one row per batch size tried with training throughput and
+ * fit() latency percentiles, the optimal batch size, and why the sweep stopped.
+ *
+ * @author kepricon
+ */
+public class AutotuneReport {
+
+    private final String name;
+    private final String description;
+    private final List<InferenceReport.BatchResult> results = new ArrayList<>();
+    private String stopReason = "max batch size reached";
+
+    public AutotuneReport(String name, String description) {
+        this.name = name;
+        this.description = description;
+    }
+
+    public void addResult(int batchSize, long totalNanos, LatencyHistogram latency) {
+        results.add(new InferenceReport.BatchResult(batchSize, totalNanos, latency));
+    }
+
+    public void setStopReason(String stopReason) {
+        this.stopReason = stopReason;
+    }
+
+    public List<InferenceReport.BatchResult> results() { return results; }
+
+    public String name() { return name; }
+
+    /**
+     * @return the batch size with the highest training throughput, or null if no batch size completed
+     */
+    public InferenceReport.BatchResult optimal() {
+        InferenceReport.BatchResult best = null;
+        for (InferenceReport.BatchResult r : results) {
+            if (best == null || r.samplesPerSec() > best.samplesPerSec())
+                best = r;
+        }
+        return best;
+    }
+
+    public String toString() {
+        DecimalFormat df = new DecimalFormat("#.##");
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(String.format("%28s %45s\n", "Name", name));
+        sb.append(String.format("%28s %45s\n", "Description", description));
+        InferenceReport.BatchResult best = optimal();
+        if (best != null) {
+            sb.append(String.format("%28s %45s\n", "Optimal Batch Size", String.valueOf(best.batchSize())));
+            sb.append(String.format("%28s %45s\n", "Optimal Samples/sec", df.format(best.samplesPerSec())));
+        }
+        sb.append(String.format("%28s %45s\n", "Stopped", stopReason));
+
+        sb.append("\n");
+        sb.append(String.format("%10s %12s %12s %10s %10s %10s\n", "Batch", "Samples/sec", "fit() calls", "p50 (ms)", "p99", "max"));
+        for (InferenceReport.BatchResult r : results) {
+            LatencyHistogram h = r.latency();
+            sb.append(String.format("%10s %12s %12s %10s %10s %10s\n",
+                    String.valueOf(r.batchSize()),
+                    df.format(r.samplesPerSec()),
+                    String.valueOf(h.getTotalCount()),
+                    df.format(h.getValueAtPercentile(50.0) / 1e6),
+                    df.format(h.getValueAtPercentile(99.0) / 1e6),
+                    df.format(h.getMax() / 1e6)));
+        }
+
+        return sb.toString();
+    }
+}
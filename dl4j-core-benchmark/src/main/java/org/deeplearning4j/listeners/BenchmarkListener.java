@@ -14,6 +14,7 @@ import org.nd4j.linalg.util.ArrayUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -28,14 +29,32 @@ public class BenchmarkListener implements IterationListener {
     private ThreadLocal<Double> batchesPerSec = new ThreadLocal<>();
     private ThreadLocal<Long> lastTime = new ThreadLocal<>();
     private ThreadLocal<AtomicLong> iterationCount = new ThreadLocal<>();
+    private ThreadLocal<SteadyStateDetector> warmup = new ThreadLocal<>();
 
     private BenchmarkReport benchmarkReport;
 
+    private final int warmupWindow;
+    private final double warmupThreshold;
+    private final int maxWarmupIterations;
+
     private String device;
 
     public BenchmarkListener(BenchmarkReport benchmarkReport) {
+        this(benchmarkReport, SteadyStateDetector.DEFAULT_WINDOW, SteadyStateDetector.DEFAULT_CV_THRESHOLD, SteadyStateDetector.DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * @param benchmarkReport     report to collect statistics into
+     * @param warmupWindow        number of recent iterations used to judge steady state
+     * @param warmupThreshold     coefficient of variation of iteration times below which warmup ends
+     * @param maxWarmupIterations stop waiting for steady state after this many iterations
+     */
+    public BenchmarkListener(BenchmarkReport benchmarkReport, int warmupWindow, double warmupThreshold, int maxWarmupIterations) {
         this.benchmarkReport = benchmarkReport;
         this.frequency = 1;
+        this.warmupWindow = warmupWindow;
+        this.warmupThreshold = warmupThreshold;
+        this.maxWarmupIterations = maxWarmupIterations;
     }
 
     @Override
@@ -50,10 +69,12 @@ public class BenchmarkListener implements IterationListener {
 
     @Override
     public void iterationDone(Model model, int iteration) {
+        long currentTime = System.nanoTime();
+
         // we update lastTime on every iteration
         // just to simplify things
         if (lastTime.get() == null)
-            lastTime.set(System.currentTimeMillis());
+            lastTime.set(currentTime);
 
         if (samplesPerSec.get() == null)
             samplesPerSec.set(0.0);
@@ -64,14 +85,25 @@ public class BenchmarkListener implements IterationListener {
         if (iterationCount.get() == null)
             iterationCount.set(new AtomicLong(0));
 
-        if(iterationCount.get().get() <= 3*frequency)
-            lastTime.set(System.currentTimeMillis());
+        if (warmup.get() == null)
+            warmup.set(new SteadyStateDetector(warmupWindow, warmupThreshold, maxWarmupIterations));
 
-        if (iterationCount.get().getAndIncrement() % frequency == 0 && iterationCount.get().get() > 3*frequency) {
-            long currentTime = System.currentTimeMillis();
+        // memory samples (MemoryListener) taken since the last iteration are not part of it
+        long timeSpentNanos = currentTime - lastTime.get() - benchmarkReport.memory().takeSamplingNanos();
+        SteadyStateDetector detector = warmup.get();
 
-            long timeSpent = currentTime - lastTime.get();
-            float timeSec = timeSpent / 1000f;
+        if (!detector.isSteady()) {
+            // the very first call has no previous timestamp, so there is nothing to measure yet
+            if (iterationCount.get().getAndIncrement() > 0 && detector.update(timeSpentNanos)) {
+                benchmarkReport.setWarmup(detector.getWarmupIterations(), detector.getWarmupNanos(), detector.isConverged());
+                if (detector.isConverged())
+                    logger.info("Warmup finished after {} iterations (CV {})", detector.getWarmupIterations(), detector.getLastCV());
+                else
+                    logger.warn("Iteration times did not settle (CV {}) after {} iterations, recording anyway", detector.getLastCV(), detector.getWarmupIterations());
+            }
+        } else if (iterationCount.get().getAndIncrement() % frequency == 0) {
+            long timeSpent = TimeUnit.NANOSECONDS.toMillis(timeSpentNanos);
+            float timeSec = timeSpentNanos / 1e9f;
 
             INDArray input;
             if (model instanceof ComputationGraph) {
@@ -94,8 +126,9 @@ public class BenchmarkListener implements IterationListener {
             samplesPerSec.set((double) (numSamples / timeSec));
             batchesPerSec.set((double) (1 / timeSec));
 
-            benchmarkReport.setIterations(iterationCount.get().get());
+            benchmarkReport.addIteration();
             benchmarkReport.addIterationTime(timeSpent);
+            benchmarkReport.recordIterationNanos(timeSpentNanos);
             if(!Double.isInfinite(samplesPerSec.get())) benchmarkReport.addSamplesSec(samplesPerSec.get());
             if(!Double.isInfinite(batchesPerSec.get())) benchmarkReport.addBatchesSec(batchesPerSec.get());
 
@@ -103,6 +136,6 @@ public class BenchmarkListener implements IterationListener {
         }
 
         benchmarkReport.addTotalIterations();
-        lastTime.set(System.currentTimeMillis());
+        lastTime.set(System.nanoTime());
     }
 }
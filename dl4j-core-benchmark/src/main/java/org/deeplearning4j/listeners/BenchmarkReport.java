@@ -12,8 +12,6 @@ import oshi.software.os.OperatingSystem;
 
 import java.text.DecimalFormat;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Reporting for BenchmarkListener.
@@ -24,87 +22,92 @@ public class BenchmarkReport {
 
     private String name;
     private String description;
-    private List<String> devices = new ArrayList<>();
-    private String backend;
-    private String cpuCores;
-    private String blasVendor;
-    private String modelSummary;
-    private String cudaVersion;
-    private String cudnnVersion;
     private int numParams;
     private int numLayers;
-    private long iterations;
-    private long totalIterationTime;
-    private double totalSamplesSec;
-    private double totalBatchesSec;
-    private double avgFeedForward;
-    private double avgBackprop;
-    private long avgUpdater;
-
-    long epochTime;
-    private AtomicLong totalIterations;
-    private AtomicLong totalSamples;
-
-    private BenchmarkReport() {}
-
-    private static class Singleton {
-        private static final BenchmarkReport instance = new BenchmarkReport();
-        static {
-            instance.initialize();
-        }
-    }
-    public static BenchmarkReport getInstance() {
-        return Singleton.instance;
+    private int batchSize;
+    private int workers;
+    private String modelSummary;
+    private final StripedLongAdder iterations = new StripedLongAdder();
+    private final StripedLongAdder totalIterationTime = new StripedLongAdder();
+    private final StripedDoubleAdder totalSamplesSec = new StripedDoubleAdder();
+    private final StripedDoubleAdder totalBatchesSec = new StripedDoubleAdder();
+    private volatile double avgFeedForward;
+    private volatile double avgBackprop;
+    private volatile double avgUpdater;
+    private final LatencyHistogram iterationLatency = new LatencyHistogram();
+    private final LatencyHistogram feedForwardLatency = new LatencyHistogram();
+    private final LatencyHistogram backpropLatency = new LatencyHistogram();
+    private final LatencyHistogram updaterLatency = new LatencyHistogram();
+    private final LatencyHistogram etlLatency = new LatencyHistogram();
+    private long warmupIterations;
+    private long warmupNanos;
+    private boolean warmupConverged;
+    private final MemoryStats memory = new MemoryStats();
+    private EtlStats etl;
+    private TokenStats tokens;
+
+    private volatile long epochTime;
+    private final StripedLongAdder totalIterations = new StripedLongAdder();
+    private final StripedLongAdder totalSamples = new StripedLongAdder();
+
+    /**
+     * One report per model and run. Counters are striped so that ParallelWrapper workers can update the same
+     * report without locking; the stripes are merged when the report is read.
+     */
+    public BenchmarkReport(String name, String description) {
+        this.name = name;
+        this.description = description;
     }
 
-    private void initialize() {
-        Properties env = Nd4j.getExecutioner().getEnvironmentInformation();
+    /**
+     * Backend and device information, which is the same for every report of the process.
+     */
+    private static class Environment {
+        private static final List<String> devices = new ArrayList<>();
+        private static String backend;
+        private static String cpuCores;
+        private static String blasVendor;
+        private static String cudaVersion;
+        private static String cudnnVersion;
 
-        backend = env.get("backend").toString();
-        cpuCores = env.get("cores").toString();
-        blasVendor = env.get("blas.vendor").toString();
+        static {
+            Properties env = Nd4j.getExecutioner().getEnvironmentInformation();
 
-        if(backend.equals("CUDA")){
-            cudaVersion = String.valueOf(cuda.__CUDA_API_VERSION);
+            backend = env.get("backend").toString();
+            cpuCores = env.get("cores").toString();
+            blasVendor = env.get("blas.vendor").toString();
 
-            try {
-                cudnnVersion = String.valueOf(cudnn.cudnnGetVersion());
-            }catch (UnsatisfiedLinkError e){
-                cudnnVersion = "n/a";
+            if(backend.equals("CUDA")){
+                cudaVersion = String.valueOf(cuda.__CUDA_API_VERSION);
+
+                try {
+                    cudnnVersion = String.valueOf(cudnn.cudnnGetVersion());
+                }catch (UnsatisfiedLinkError e){
+                    cudnnVersion = "n/a";
+                }
             }
-        }
 
-        // if CUDA is present, add GPU information
-        try {
-            List devicesList = (List) env.get("cuda.devicesInformation");
-            Iterator deviceIter = devicesList.iterator();
-            while (deviceIter.hasNext()) {
-                Map dev = (Map) deviceIter.next();
-                devices.add(dev.get("cuda.deviceName") + " " + dev.get("cuda.deviceMajor") + " " + dev.get("cuda.deviceMinor") + " " + dev.get("cuda.totalMemory"));
+            // if CUDA is present, add GPU information
+            try {
+                List devicesList = (List) env.get("cuda.devicesInformation");
+                Iterator deviceIter = devicesList.iterator();
+                while (deviceIter.hasNext()) {
+                    Map dev = (Map) deviceIter.next();
+                    devices.add(dev.get("cuda.deviceName") + " " + dev.get("cuda.deviceMajor") + " " + dev.get("cuda.deviceMinor") + " " + dev.get("cuda.totalMemory"));
+                }
+            } catch(Exception e) {
+                SystemInfo sys = new SystemInfo();
+                devices.add(sys.getHardware().getProcessor().getName());
             }
-        } catch(Exception e) {
-            SystemInfo sys = new SystemInfo();
-            devices.add(sys.getHardware().getProcessor().getName());
         }
-
-        totalIterations = new AtomicLong(0);
-        totalSamples = new AtomicLong(0);
     }
 
     public void addTotalIterations(){
-        this.totalIterations.incrementAndGet();
+        this.totalIterations.increment();
     }
 
     public void addTotalSamples(long nSamples) {
-        this.totalSamples.addAndGet(nSamples);
-    }
-
-    public void setName(String name){
-        this.name = name;
-    }
-
-    public void setDescription(String description){
-        this.description = description;
+        this.totalSamples.add(nSamples);
     }
 
     public void setModel(Model model) {
@@ -120,38 +123,168 @@ public class BenchmarkReport {
         }
     }
 
-    public void setIterations(long iterations) { this.iterations = iterations; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public void setWorkers(int workers) { this.workers = workers; }
+
+    public void addIteration() { iterations.increment(); }
+
+    public void addIterationTime(long iterationTime) { totalIterationTime.add(iterationTime); }
+
+    public void addSamplesSec(double samplesSec) { totalSamplesSec.add(samplesSec); }
+
+    public void addBatchesSec(double batchesSec) { totalBatchesSec.add(batchesSec); }
+
+    /**
+     * Called once per worker when its warmup ends; the report keeps the longest warmup, and is only converged
+     * if every worker converged.
+     */
+    public synchronized void setWarmup(long warmupIterations, long warmupNanos, boolean converged) {
+        boolean first = this.warmupIterations == 0 && this.warmupNanos == 0;
+        this.warmupIterations = Math.max(this.warmupIterations, warmupIterations);
+        this.warmupNanos = Math.max(this.warmupNanos, warmupNanos);
+        this.warmupConverged = first ? converged : this.warmupConverged && converged;
+    }
+
+    public long warmupIterations() { return warmupIterations; }
+
+    public long warmupNanos() { return warmupNanos; }
+
+    public void recordIterationNanos(long nanos) { iterationLatency.record(nanos); }
+
+    public void recordFeedForwardNanos(long nanos) { feedForwardLatency.record(nanos); }
 
-    public void addIterationTime(long iterationTime) { totalIterationTime += iterationTime; }
+    public void recordBackpropNanos(long nanos) { backpropLatency.record(nanos); }
 
-    public void addSamplesSec(double samplesSec) { totalSamplesSec += samplesSec; }
+    public void recordUpdaterNanos(long nanos) { updaterLatency.record(nanos); }
 
-    public void addBatchesSec(double batchesSec) { totalBatchesSec += batchesSec; }
+    public void recordEtlNanos(long nanos) { etlLatency.record(nanos); }
+
+    public LatencyHistogram iterationLatency() { return iterationLatency; }
+
+    public LatencyHistogram feedForwardLatency() { return feedForwardLatency; }
+
+    public LatencyHistogram backpropLatency() { return backpropLatency; }
+
+    public LatencyHistogram updaterLatency() { return updaterLatency; }
+
+    public LatencyHistogram etlLatency() { return etlLatency; }
+
+    public MemoryStats memory() { return memory; }
+
+    public void setEtl(EtlStats etl) { this.etl = etl; }
+
+    public EtlStats etl() { return etl; }
+
+    public void setTokens(TokenStats tokens) { this.tokens = tokens; }
+
+    public TokenStats tokens() { return tokens; }
 
     public void setAvgFeedForward(double feedForwardTime) { avgFeedForward = feedForwardTime; }
 
     public void setAvgBackprop(double backpropTime) { this.avgBackprop = backpropTime; }
 
-    public void setAvgUpdater(long updaterTime) { this.avgUpdater = updaterTime; }
+    public void setAvgUpdater(double updaterTime) { this.avgUpdater = updaterTime; }
+
+    public List<String> devices() { return Environment.devices; }
+
+    public String name() { return name; }
 
-    public List<String> devices() { return devices; }
+    public String description() { return description; }
 
-    public double avgIterationTime() { return (double) totalIterationTime / (double) iterations; }
+    public String backend() { return Environment.backend; }
 
-    public double avgSamplesSec() { return totalSamplesSec / (double) iterations; }
+    public long iterations() { return iterations.sum(); }
 
-    public double avgBatchesSec() { return totalBatchesSec / (double) iterations; }
+    public double avgIterationTime() { return (double) totalIterationTime.sum() / (double) iterations.sum(); }
+
+    public double avgSamplesSec() { return totalSamplesSec.sum() / (double) iterations.sum(); }
+
+    public double avgBatchesSec() { return totalBatchesSec.sum() / (double) iterations.sum(); }
 
     public double avgFeedForward() { return avgFeedForward; }
 
     public double avgBackprop() { return avgBackprop; }
 
+    public double avgUpdater() { return avgUpdater; }
+
     public String getModelSummary() { return modelSummary; }
 
     public void setEpochTime(long epochTime){
         this.epochTime = epochTime;
     }
 
+    public long epochTime() { return epochTime; }
+
+    /**
+     * Flat, machine readable view of this report: configuration, averages, latency distributions (ms)
+     * and memory (bytes). Keys are stable so records from different runs can be compared.
+     */
+    public Map<String, Object> toRecord() {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("model", name);
+        record.put("description", description);
+        record.put("batchSize", batchSize);
+        record.put("workers", workers);
+        record.put("backend", Environment.backend);
+        record.put("blasVendor", Environment.blasVendor);
+        record.put("cpuCores", Environment.cpuCores);
+        record.put("device", Environment.devices.isEmpty() ? null : Environment.devices.get(0));
+        if ("CUDA".equals(Environment.backend)) {
+            record.put("cudaVersion", Environment.cudaVersion);
+            record.put("cudnnVersion", Environment.cudnnVersion);
+        }
+        record.put("numParams", numParams);
+        record.put("numLayers", numLayers);
+        record.put("iterations", iterations.sum());
+        record.put("warmupIterations", warmupIterations);
+        record.put("warmupConverged", warmupConverged);
+        record.put("avgFeedForwardMs", avgFeedForward);
+        record.put("avgBackpropMs", avgBackprop);
+        record.put("avgUpdaterMs", avgUpdater);
+        record.put("avgIterationMs", avgIterationTime());
+        record.put("avgSamplesSec", avgSamplesSec());
+        record.put("avgBatchesSec", avgBatchesSec());
+        record.put("epochTimeMs", epochTime);
+        putLatency(record, "iteration", iterationLatency);
+        putLatency(record, "feedForward", feedForwardLatency);
+        putLatency(record, "backprop", backpropLatency);
+        putLatency(record, "updater", updaterLatency);
+        putLatency(record, "etl", etlLatency);
+        record.put("heapPeakBytes", memory.heap().peak());
+        record.put("heapSteadyBytes", memory.heap().steadyState());
+        record.put("offHeapPeakBytes", memory.offHeap().peak());
+        record.put("offHeapSteadyBytes", memory.offHeap().steadyState());
+        record.put("rssPeakBytes", memory.rss().peak());
+        record.put("rssSteadyBytes", memory.rss().steadyState());
+        if (etl != null) {
+            record.put("etlStallPercent", etl.stallPercent());
+            record.put("etlConsumerBatchesSec", etl.consumerBatchesPerSec());
+            record.put("etlProducerBatchesSec", etl.producerBatchesPerSec());
+            record.put("etlQueueDepthMean", etl.queueDepth().getMean());
+            record.put("etlQueueEmptyPercent", etl.emptyQueuePercent());
+            putLatency(record, "etlBlocked", etl.blocked());
+        }
+        if (tokens != null) {
+            record.put("paddingRatio", tokens.paddingRatio());
+            record.put("realTokens", tokens.realTokens());
+            record.put("paddedTokens", tokens.paddedTokens());
+            record.put("effectiveTokensSec", tokens.effectiveTokensPerSec(epochTime));
+        }
+        return record;
+    }
+
+    private static void putLatency(Map<String, Object> record, String phase, LatencyHistogram histogram) {
+        record.put(phase + ".count", histogram.getTotalCount());
+        record.put(phase + ".meanMs", histogram.getMean() / 1e6);
+        record.put(phase + ".stdMs", histogram.getStdDeviation() / 1e6);
+        record.put(phase + ".p50Ms", histogram.getValueAtPercentile(50.0) / 1e6);
+        record.put(phase + ".p90Ms", histogram.getValueAtPercentile(90.0) / 1e6);
+        record.put(phase + ".p99Ms", histogram.getValueAtPercentile(99.0) / 1e6);
+        record.put(phase + ".p999Ms", histogram.getValueAtPercentile(99.9) / 1e6);
+        record.put(phase + ".maxMs", histogram.getMax() / 1e6);
+    }
+
     public String toString() {
         DecimalFormat df = new DecimalFormat("#.##");
 
@@ -167,25 +300,29 @@ public class BenchmarkReport {
                 os.getFamily()+" "+
                 os.getVersion().getVersion() } );
         table.add( new String[] { "Devices", devices().get(0) } );
-        table.add( new String[] { "CPU Cores", cpuCores } ) ;
-        table.add( new String[] { "Backend", backend } );
-        table.add( new String[] { "BLAS Vendor", blasVendor } );
-        if(backend.equals("CUDA")){
-            table.add( new String[] { "CUDA Version", cudaVersion } );
-            table.add( new String[] { "CUDNN Version", cudnnVersion } );
+        table.add( new String[] { "CPU Cores", Environment.cpuCores } ) ;
+        table.add( new String[] { "Backend", Environment.backend } );
+        table.add( new String[] { "BLAS Vendor", Environment.blasVendor } );
+        if(Environment.backend.equals("CUDA")){
+            table.add( new String[] { "CUDA Version", Environment.cudaVersion } );
+            table.add( new String[] { "CUDNN Version", Environment.cudnnVersion } );
         }
         table.add( new String[] { "Total Params", Integer.toString(numParams) } );
         table.add( new String[] { "Total Layers", Integer.toString(numLayers) } );
+        table.add( new String[] { "Warmup Iterations", warmupIterations + (warmupConverged ? "" : " (not converged)") } );
+        table.add( new String[] { "Warmup Time (sec)", df.format(warmupNanos / 1e9) } );
         table.add( new String[] { "Avg Feedforward (ms)", df.format(avgFeedForward) } );
         table.add( new String[] { "Avg Backprop (ms)", df.format(avgBackprop) } );
+        table.add( new String[] { "Avg Updater (ms)", df.format(avgUpdater) } );
+        table.add( new String[] { "Avg Fwd+Bwd+Upd (ms)", df.format(avgFeedForward + avgBackprop + avgUpdater) } );
         table.add( new String[] { "Avg Iteration (ms)", df.format(avgIterationTime()) } );
         table.add( new String[] { "Avg Samples/sec", df.format(avgSamplesSec()) } );
         table.add( new String[] { "Avg Batches/sec", df.format(avgBatchesSec()) } );
 
         table.add( new String[] { "","" } );
-        table.add( new String[] { "Avg Iteration : " , df.format((double) epochTime / totalIterations.longValue()) } );
-        table.add( new String[] { "Avg Samples/sec : ", df.format((double) totalSamples.longValue() / (epochTime / 1000f)) } );
-        table.add( new String[] { "Avg batches/sec : ", df.format((double) totalIterations.longValue() / (epochTime / 1000f)) } );
+        table.add( new String[] { "Avg Iteration : " , df.format((double) epochTime / totalIterations.sum()) } );
+        table.add( new String[] { "Avg Samples/sec : ", df.format((double) totalSamples.sum() / (epochTime / 1000f)) } );
+        table.add( new String[] { "Avg batches/sec : ", df.format((double) totalIterations.sum() / (epochTime / 1000f)) } );
         table.add( new String[] { "Epoch Time(sec) : " , String.valueOf(epochTime / 1000f)});
 
         StringBuilder sb = new StringBuilder();
@@ -194,7 +331,41 @@ public class BenchmarkReport {
             sb.append(String.format("%28s %45s\n", row));
         }
 
+        sb.append("\n");
+        sb.append(String.format("%28s %10s %10s %10s %10s %10s %10s\n", "Latency (ms)", "count", "p50", "p90", "p99", "p99.9", "max"));
+        appendPercentiles(sb, df, "Iteration", iterationLatency);
+        appendPercentiles(sb, df, "Feedforward", feedForwardLatency);
+        appendPercentiles(sb, df, "Backprop", backpropLatency);
+        appendPercentiles(sb, df, "Updater", updaterLatency);
+        appendPercentiles(sb, df, "ETL wait", etlLatency);
+
+        if (etl != null && (etl.consumed() > 0 || etl.produced() > 0)) {
+            sb.append("\n");
+            etl.appendTo(sb, df);
+        }
+
+        if (tokens != null && tokens.batches() > 0) {
+            sb.append("\n");
+            tokens.appendTo(sb, df, epochTime);
+        }
+
+        sb.append("\n");
+        memory.appendTo(sb, df);
+
         return sb.toString();
     }
 
+    private static void appendPercentiles(StringBuilder sb, DecimalFormat df, String phase, LatencyHistogram histogram) {
+        if (histogram.getTotalCount() == 0)
+            return;
+        sb.append(String.format("%28s %10s %10s %10s %10s %10s %10s\n",
+                phase,
+                String.valueOf(histogram.getTotalCount()),
+                df.format(histogram.getValueAtPercentile(50.0) / 1e6),
+                df.format(histogram.getValueAtPercentile(90.0) / 1e6),
+                df.format(histogram.getValueAtPercentile(99.0) / 1e6),
+                df.format(histogram.getValueAtPercentile(99.9) / 1e6),
+                df.format(histogram.getMax() / 1e6)));
+    }
+
 }
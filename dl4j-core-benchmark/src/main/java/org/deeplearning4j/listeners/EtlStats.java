@@ -0,0 +1,169 @@
+package org.deeplearning4j.listeners;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Input pipeline statistics collected by InstrumentedDataSetIterator: how long the training loop was blocked
+ * waiting for data, how fast the producer side builds minibatches, and how many prefetched minibatches were
+ * waiting whenever the training loop asked for the next one.
+ *
+ * ETL stall % is the share of the training loop's wall time spent blocked in hasNext()/next(). Near 0 the run is
+ * compute-bound; a high value with a producer rate close to the consumer rate means more decoding threads help.
+ *
+ * @author kepricon
+ */
+public class EtlStats {
+    /** queue depth is added to the time series at most this often */
+    public static final long DEPTH_SAMPLE_INTERVAL_NANOS = 100L * 1000L * 1000L;
+    public static final int MAX_DEPTH_SAMPLES = 10000;
+
+    private final LatencyHistogram blocked = new LatencyHistogram();
+    private final LatencyHistogram production = new LatencyHistogram();
+    private final LatencyHistogram queueDepth = new LatencyHistogram(1 << 20, LatencyHistogram.DEFAULT_SIGNIFICANT_BITS);
+    private final AtomicLong produced = new AtomicLong(0);
+    private final AtomicLong consumed = new AtomicLong(0);
+    private final AtomicLong blockedNanos = new AtomicLong(0);
+    private final AtomicLong productionNanos = new AtomicLong(0);
+    private final AtomicLong emptyQueue = new AtomicLong(0);
+    private volatile long consumerStart = -1;
+    private volatile long consumerEnd = -1;
+    private volatile long producerStart = -1;
+    private volatile long producerEnd = -1;
+    private volatile boolean producerInstrumented = false;
+
+    private final List<long[]> depthSeries = new ArrayList<>();
+    private long lastDepthSample;
+
+    /**
+     * Mark that minibatches are also counted on the producer side, so queue depth and production rate are known.
+     */
+    public void setProducerInstrumented() {
+        this.producerInstrumented = true;
+    }
+
+    public boolean isProducerInstrumented() { return producerInstrumented; }
+
+    /**
+     * Called by the training loop side around each hasNext()/next().
+     */
+    public void recordBlocked(long startNanos, long nanos) {
+        if (consumerStart < 0)
+            consumerStart = startNanos;
+        consumerEnd = startNanos + nanos;
+        blockedNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Called by the training loop side once per minibatch it receives, with the total time it was blocked for it.
+     */
+    public void recordConsumed(long blockedForBatchNanos) {
+        blocked.record(blockedForBatchNanos);
+        // the producer side has already counted this minibatch: depth is what is left waiting behind it
+        long depth = produced.get() - consumed.incrementAndGet();
+        if (producerInstrumented) {
+            depth = Math.max(0, depth);
+            queueDepth.record(depth);
+            if (depth == 0)
+                emptyQueue.incrementAndGet();
+            sampleDepth(depth);
+        }
+    }
+
+    /**
+     * Called by the producer side once per minibatch built by the underlying iterator.
+     */
+    public void recordProduced(long startNanos, long nanos) {
+        if (producerStart < 0)
+            producerStart = startNanos;
+        producerEnd = startNanos + nanos;
+        production.record(nanos);
+        productionNanos.addAndGet(nanos);
+        produced.incrementAndGet();
+    }
+
+    private synchronized void sampleDepth(long depth) {
+        long now = System.nanoTime();
+        if (depthSeries.size() >= MAX_DEPTH_SAMPLES || (!depthSeries.isEmpty() && now - lastDepthSample < DEPTH_SAMPLE_INTERVAL_NANOS))
+            return;
+        lastDepthSample = now;
+        depthSeries.add(new long[]{(now - consumerStart) / 1000000, depth});
+    }
+
+    public long consumed() { return consumed.get(); }
+
+    public long produced() { return produced.get(); }
+
+    public LatencyHistogram blocked() { return blocked; }
+
+    public LatencyHistogram production() { return production; }
+
+    public LatencyHistogram queueDepth() { return queueDepth; }
+
+    /**
+     * @return {milliseconds since the first minibatch was requested, queue depth} pairs, sampled every 100 ms
+     */
+    public synchronized List<long[]> depthSeries() { return new ArrayList<>(depthSeries); }
+
+    public double stallPercent() {
+        long wall = consumerEnd - consumerStart;
+        return wall <= 0 ? 0.0 : 100.0 * blockedNanos.get() / wall;
+    }
+
+    /**
+     * @return minibatches per second the training loop would take if data were always ready
+     */
+    public double consumerBatchesPerSec() {
+        long busy = (consumerEnd - consumerStart) - blockedNanos.get();
+        return busy <= 0 ? 0.0 : consumed.get() / (busy / 1e9);
+    }
+
+    /**
+     * @return minibatches per second the producer builds while it is working, or 0 if the producer is not instrumented
+     */
+    public double producerBatchesPerSec() {
+        long busy = productionNanos.get();
+        return busy <= 0 ? 0.0 : produced.get() / (busy / 1e9);
+    }
+
+    /**
+     * @return minibatches per second the producer delivered over its wall time
+     */
+    public double producerDeliveredBatchesPerSec() {
+        long wall = producerEnd - producerStart;
+        return wall <= 0 ? 0.0 : produced.get() / (wall / 1e9);
+    }
+
+    /**
+     * @return share of minibatch requests that found no prefetched minibatch waiting
+     */
+    public double emptyQueuePercent() {
+        long n = queueDepth.getTotalCount();
+        return n == 0 ? 0.0 : 100.0 * emptyQueue.get() / n;
+    }
+
+    /**
+     * Consumer-side rows need a consumer-side wrapper; with only the producer side instrumented (under
+     * ParallelWrapper) just the production rates are printed.
+     */
+    public void appendTo(StringBuilder sb, DecimalFormat df) {
+        boolean consumer = consumed.get() > 0;
+        if (consumer) {
+            sb.append(String.format("%28s %45s\n", "ETL Stall %", df.format(stallPercent())));
+            sb.append(String.format("%28s %45s\n", "ETL Blocked p50/p99 (ms)",
+                    df.format(blocked.getValueAtPercentile(50.0) / 1e6) + " / " + df.format(blocked.getValueAtPercentile(99.0) / 1e6)));
+            sb.append(String.format("%28s %45s\n", "Consumer Batches/sec", df.format(consumerBatchesPerSec())));
+        }
+        if (producerInstrumented && produced.get() > 0) {
+            sb.append(String.format("%28s %45s\n", "Producer Batches/sec (busy)", df.format(producerBatchesPerSec())));
+            sb.append(String.format("%28s %45s\n", "Producer Batches/sec (wall)", df.format(producerDeliveredBatchesPerSec())));
+        }
+        if (producerInstrumented && consumer) {
+            sb.append(String.format("%28s %45s\n", "Queue Depth mean/p50/max",
+                    df.format(queueDepth.getMean()) + " / " + queueDepth.getValueAtPercentile(50.0) + " / " + queueDepth.getMax()));
+            sb.append(String.format("%28s %45s\n", "Queue Empty %", df.format(emptyQueuePercent())));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.deeplearning4j.listeners;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reporting for inference benchmarks: one row per batch size with throughput and latency percentiles.
+ *
+ * @author kepricon
+ */
+public class InferenceReport {
+
+    private final String name;
+    private final String description;
+    private final List<BatchResult> results = new ArrayList<>();
+
+    public InferenceReport(String name, String description) {
+        this.name = name;
+        this.description = description;
+    }
+
+    public static class BatchResult {
+        private final int batchSize;
+        private final long totalNanos;
+        private final LatencyHistogram latency;
+
+        public BatchResult(int batchSize, long totalNanos, LatencyHistogram latency) {
+            this.batchSize = batchSize;
+            this.totalNanos = totalNanos;
+            this.latency = latency;
+        }
+
+        public int batchSize() { return batchSize; }
+
+        public long totalNanos() { return totalNanos; }
+
+        public LatencyHistogram latency() { return latency; }
+
+        public long numSamples() { return latency.getTotalCount() * batchSize; }
+
+        public double samplesPerSec() {
+            return totalNanos == 0 ? 0.0 : numSamples() / (totalNanos / 1e9);
+        }
+    }
+
+    public void addResult(int batchSize, long totalNanos, LatencyHistogram latency) {
+        results.add(new BatchResult(batchSize, totalNanos, latency));
+    }
+
+    public List<BatchResult> results() { return results; }
+
+    public String name() { return name; }
+
+    public String description() { return description; }
+
+    /**
+     * @return the batch size with the highest throughput, or null if nothing has been recorded
+     */
+    public BatchResult optimal() {
+        BatchResult best = null;
+        for (BatchResult r : results) {
+            if (best == null || r.samplesPerSec() > best.samplesPerSec())
+                best = r;
+        }
+        return best;
+    }
+
+    public String toString() {
+        DecimalFormat df = new DecimalFormat("#.##");
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(String.format("%28s %45s\n", "Name", name));
+        sb.append(String.format("%28s %45s\n", "Description", description));
+        BatchResult best = optimal();
+        if (best != null) {
+            sb.append(String.format("%28s %45s\n", "Optimal Batch Size", String.valueOf(best.batchSize())));
+            sb.append(String.format("%28s %45s\n", "Optimal Samples/sec", df.format(best.samplesPerSec())));
+        }
+
+        sb.append("\n");
+        sb.append(String.format("%10s %12s %10s %10s %10s %10s %10s %10s\n", "Batch", "Samples/sec", "count", "p50 (ms)", "p90", "p99", "p99.9", "max"));
+        for (BatchResult r : results) {
+            LatencyHistogram h = r.latency();
+            sb.append(String.format("%10s %12s %10s %10s %10s %10s %10s %10s\n",
+                    String.valueOf(r.batchSize()),
+                    df.format(r.samplesPerSec()),
+                    String.valueOf(h.getTotalCount()),
+                    df.format(h.getValueAtPercentile(50.0) / 1e6),
+                    df.format(h.getValueAtPercentile(90.0) / 1e6),
+                    df.format(h.getValueAtPercentile(99.0) / 1e6),
+                    df.format(h.getValueAtPercentile(99.9) / 1e6),
+                    df.format(h.getMax() / 1e6)));
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,189 @@
+package org.deeplearning4j.listeners;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, fixed-memory latency histogram in the spirit of HdrHistogram.
+ *
+ * Values (nanoseconds) are bucketed log-linearly: every power-of-two range is split into
+ * 2^(significantBits-1) linear sub-buckets, so the relative error of any reported value is bounded
+ * by 1/2^(significantBits-1) regardless of magnitude. Memory is allocated once in the constructor and
+ * {@link #record(long)} only performs atomic increments, so it is safe to call from multiple
+ * training/worker threads without locking and without allocating inside a measured interval.
+ *
+ * @author kepricon
+ */
+public class LatencyHistogram {
+    public static final long DEFAULT_HIGHEST_TRACKABLE_NANOS = 3600L * 1000L * 1000L * 1000L; // 1 hour
+    public static final int DEFAULT_SIGNIFICANT_BITS = 8;
+
+    private final int significantBits;
+    private final long subBucketCount;
+    private final long subBucketHalfCount;
+    private final long highestTrackableValue;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong(0);
+    private final AtomicLong totalSum = new AtomicLong(0);
+    private final AtomicLong minValue = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxValue = new AtomicLong(0);
+
+    public LatencyHistogram() {
+        this(DEFAULT_HIGHEST_TRACKABLE_NANOS, DEFAULT_SIGNIFICANT_BITS);
+    }
+
+    /**
+     * @param highestTrackableValue largest value that can be recorded; larger values are clamped
+     * @param significantBits       number of bits of precision kept per power-of-two range (2..16)
+     */
+    public LatencyHistogram(long highestTrackableValue, int significantBits) {
+        if (significantBits < 2 || significantBits > 16)
+            throw new IllegalArgumentException("significantBits must be between 2 and 16, got " + significantBits);
+        if (highestTrackableValue < 2)
+            throw new IllegalArgumentException("highestTrackableValue must be >= 2, got " + highestTrackableValue);
+
+        this.significantBits = significantBits;
+        this.subBucketCount = 1L << significantBits;
+        this.subBucketHalfCount = subBucketCount >> 1;
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new AtomicLongArray(indexFor(highestTrackableValue) + 1);
+    }
+
+    private int indexFor(long value) {
+        if (value < subBucketCount)
+            return (int) value;
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - (significantBits - 1);
+        long subBucket = value >>> shift;
+        return (int) (shift * subBucketHalfCount + subBucket);
+    }
+
+    private long lowestEquivalentValue(int index) {
+        if (index < subBucketCount)
+            return index;
+        int shift = (int) (index / subBucketHalfCount) - 1;
+        long subBucket = index - shift * subBucketHalfCount;
+        return subBucket << shift;
+    }
+
+    private long highestEquivalentValue(int index) {
+        if (index < subBucketCount)
+            return index;
+        int shift = (int) (index / subBucketHalfCount) - 1;
+        long subBucket = index - shift * subBucketHalfCount;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Record a single value. Negative values are recorded as 0, values above the trackable range are clamped.
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        if (value > highestTrackableValue)
+            value = highestTrackableValue;
+
+        counts.incrementAndGet(indexFor(value));
+        totalCount.incrementAndGet();
+        totalSum.addAndGet(value);
+
+        long current = maxValue.get();
+        while (value > current && !maxValue.compareAndSet(current, value))
+            current = maxValue.get();
+        current = minValue.get();
+        while (value < current && !minValue.compareAndSet(current, value))
+            current = minValue.get();
+    }
+
+    /**
+     * Add all recorded values of another histogram with the same layout into this one.
+     */
+    public void add(LatencyHistogram other) {
+        if (other.counts.length() != counts.length() || other.significantBits != significantBits)
+            throw new IllegalArgumentException("Cannot merge histograms with different layouts");
+
+        for (int i = 0; i < counts.length(); i++) {
+            long c = other.counts.get(i);
+            if (c != 0)
+                counts.addAndGet(i, c);
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        totalSum.addAndGet(other.totalSum.get());
+
+        long otherMax = other.maxValue.get();
+        long current = maxValue.get();
+        while (otherMax > current && !maxValue.compareAndSet(current, otherMax))
+            current = maxValue.get();
+        long otherMin = other.minValue.get();
+        current = minValue.get();
+        while (otherMin < current && !minValue.compareAndSet(current, otherMin))
+            current = minValue.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++)
+            counts.set(i, 0);
+        totalCount.set(0);
+        totalSum.set(0);
+        minValue.set(Long.MAX_VALUE);
+        maxValue.set(0);
+    }
+
+    public long getTotalCount() { return totalCount.get(); }
+
+    public long getMax() { return maxValue.get(); }
+
+    public long getMin() { return totalCount.get() == 0 ? 0 : minValue.get(); }
+
+    public double getMean() {
+        long n = totalCount.get();
+        return n == 0 ? 0.0 : (double) totalSum.get() / (double) n;
+    }
+
+    /**
+     * Standard deviation computed from bucket midpoints, so it carries the same relative error as the buckets.
+     */
+    public double getStdDeviation() {
+        long n = totalCount.get();
+        if (n < 2)
+            return 0.0;
+        double mean = getMean();
+        double sumSq = 0.0;
+        for (int i = 0; i < counts.length(); i++) {
+            long c = counts.get(i);
+            if (c == 0)
+                continue;
+            double mid = (lowestEquivalentValue(i) + highestEquivalentValue(i)) / 2.0;
+            sumSq += c * (mid - mean) * (mid - mean);
+        }
+        return Math.sqrt(sumSq / (n - 1));
+    }
+
+    /**
+     * @param percentile percentile in the range [0, 100]
+     * @return the highest value equivalent (within histogram precision) to the given percentile, or 0 if empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        long n = totalCount.get();
+        if (n == 0)
+            return 0;
+        double p = Math.min(Math.max(percentile, 0.0), 100.0);
+        long target = Math.max(1, (long) Math.ceil(p / 100.0 * n));
+
+        long cumulative = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= target)
+                return Math.min(highestEquivalentValue(i), maxValue.get());
+        }
+        return maxValue.get();
+    }
+
+    /**
+     * @return lowest value that shares a bucket with the given value, useful to reason about precision
+     */
+    public long lowestEquivalent(long value) {
+        return lowestEquivalentValue(indexFor(Math.min(Math.max(value, 0), highestTrackableValue)));
+    }
+}
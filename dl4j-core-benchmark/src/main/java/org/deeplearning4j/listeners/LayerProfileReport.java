@@ -0,0 +1,122 @@
+package org.deeplearning4j.listeners;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-layer (or per-vertex) forward/backward timing collected by LayerProfiler.
+ *
+ * @author kepricon
+ */
+public class LayerProfileReport {
+
+    private final String name;
+    private final Map<String, LayerStats> layers = new LinkedHashMap<>();
+
+    public LayerProfileReport(String name) {
+        this.name = name;
+    }
+
+    public static class LayerStats {
+        private final String name;
+        private final String type;
+        private final int numParams;
+        private final LatencyHistogram forward = new LatencyHistogram();
+        private final LatencyHistogram backward = new LatencyHistogram();
+        private long activationBytes;
+
+        private LayerStats(String name, String type, int numParams) {
+            this.name = name;
+            this.type = type;
+            this.numParams = numParams;
+        }
+
+        public String name() { return name; }
+
+        public String type() { return type; }
+
+        public int numParams() { return numParams; }
+
+        public LatencyHistogram forward() { return forward; }
+
+        public LatencyHistogram backward() { return backward; }
+
+        public long activationBytes() { return activationBytes; }
+    }
+
+    /**
+     * Get or register a layer. Layers are reported in the order they are first registered.
+     */
+    public LayerStats layer(String name, String type, int numParams) {
+        LayerStats stats = layers.get(name);
+        if (stats == null) {
+            stats = new LayerStats(name, type, numParams);
+            layers.put(name, stats);
+        }
+        return stats;
+    }
+
+    public void recordForward(LayerStats layer, long nanos, long activationBytes) {
+        layer.forward.record(nanos);
+        layer.activationBytes = activationBytes;
+    }
+
+    public void recordBackward(LayerStats layer, long nanos) {
+        layer.backward.record(nanos);
+    }
+
+    public List<LayerStats> layers() { return new ArrayList<>(layers.values()); }
+
+    private double totalMeanNanos() {
+        double total = 0.0;
+        for (LayerStats l : layers.values())
+            total += l.forward.getMean() + l.backward.getMean();
+        return total;
+    }
+
+    public String toString() {
+        DecimalFormat df = new DecimalFormat("#.##");
+        double total = totalMeanNanos();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%28s %45s\n", "Name", name));
+        sb.append("\n");
+        sb.append(String.format("%-28s %-24s %12s %10s %10s %10s %10s %8s %12s\n",
+                "Layer", "Type", "Params", "Fwd p50", "Fwd p99", "Bwd p50", "Bwd p99", "% time", "Act. (MB)"));
+        for (LayerStats l : layers.values()) {
+            double share = total == 0 ? 0.0 : 100.0 * (l.forward.getMean() + l.backward.getMean()) / total;
+            sb.append(String.format("%-28s %-24s %12s %10s %10s %10s %10s %8s %12s\n",
+                    l.name, l.type, String.valueOf(l.numParams),
+                    df.format(l.forward.getValueAtPercentile(50.0) / 1e6),
+                    df.format(l.forward.getValueAtPercentile(99.0) / 1e6),
+                    df.format(l.backward.getValueAtPercentile(50.0) / 1e6),
+                    df.format(l.backward.getValueAtPercentile(99.0) / 1e6),
+                    df.format(share),
+                    df.format(l.activationBytes / (1024.0 * 1024.0))));
+        }
+        sb.append("(times in ms)\n");
+        return sb.toString();
+    }
+
+    public void writeCsv(File file) throws IOException {
+        try (PrintWriter pw = new PrintWriter(file, "UTF-8")) {
+            pw.println("model,layer,type,params,fwd_mean_ms,fwd_p50_ms,fwd_p90_ms,fwd_p99_ms,fwd_max_ms,"
+                    + "bwd_mean_ms,bwd_p50_ms,bwd_p90_ms,bwd_p99_ms,bwd_max_ms,activation_bytes");
+            for (LayerStats l : layers.values()) {
+                pw.println(name + "," + l.name + "," + l.type + "," + l.numParams + ","
+                        + csvTimes(l.forward) + "," + csvTimes(l.backward) + "," + l.activationBytes);
+            }
+        }
+    }
+
+    private static String csvTimes(LatencyHistogram h) {
+        return (h.getMean() / 1e6) + "," + (h.getValueAtPercentile(50.0) / 1e6) + "," + (h.getValueAtPercentile(90.0) / 1e6)
+                + "," + (h.getValueAtPercentile(99.0) / 1e6) + "," + (h.getMax() / 1e6);
+    }
+}
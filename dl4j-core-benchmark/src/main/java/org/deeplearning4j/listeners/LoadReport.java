@@ -0,0 +1,136 @@
+package org.deeplearning4j.listeners;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reporting for open-loop load tests: one row per target request rate with achieved throughput and
+ * latency percentiles measured from each request's intended start time (so queueing delay is included).
+ *
+ * @author kepricon
+ */
+public class LoadReport {
+    /** achieved rate below this fraction of the target rate means the model could not keep up */
+    public static final double SATURATION_RATIO = 0.95;
+
+    private final String name;
+    private final String description;
+    private final double sloMillis;
+    private final List<RateResult> results = new ArrayList<>();
+
+    /**
+     * @param sloMillis p99 latency objective in milliseconds; rates exceeding it count as saturated. Use 0 to disable.
+     */
+    public LoadReport(String name, String description, double sloMillis) {
+        this.name = name;
+        this.description = description;
+        this.sloMillis = sloMillis;
+    }
+
+    public static class RateResult {
+        private final double targetRate;
+        private final long completed;
+        private final long durationNanos;
+        private final LatencyHistogram latency;
+        private final LatencyHistogram serviceTime;
+        private double averageBatchSize = Double.NaN;
+
+        public RateResult(double targetRate, long completed, long durationNanos, LatencyHistogram latency, LatencyHistogram serviceTime) {
+            this.targetRate = targetRate;
+            this.completed = completed;
+            this.durationNanos = durationNanos;
+            this.latency = latency;
+            this.serviceTime = serviceTime;
+        }
+
+        public double targetRate() { return targetRate; }
+
+        public double achievedRate() { return durationNanos == 0 ? 0.0 : completed / (durationNanos / 1e9); }
+
+        public LatencyHistogram latency() { return latency; }
+
+        public LatencyHistogram serviceTime() { return serviceTime; }
+
+        /**
+         * @return average size of the batches the requests at this rate were served in, NaN if not batched
+         */
+        public double averageBatchSize() { return averageBatchSize; }
+
+        public void setAverageBatchSize(double averageBatchSize) { this.averageBatchSize = averageBatchSize; }
+    }
+
+    public void addResult(double targetRate, long completed, long durationNanos, LatencyHistogram latency, LatencyHistogram serviceTime) {
+        results.add(new RateResult(targetRate, completed, durationNanos, latency, serviceTime));
+    }
+
+    public List<RateResult> results() { return results; }
+
+    public boolean isSaturated(RateResult r) {
+        if (r.achievedRate() < SATURATION_RATIO * r.targetRate())
+            return true;
+        return sloMillis > 0 && r.latency().getValueAtPercentile(99.0) / 1e6 > sloMillis;
+    }
+
+    /**
+     * @return highest target rate sustained before the first saturated rate, or 0 if even the lowest rate saturated
+     */
+    public double saturationRate() {
+        RateResult sustained = sustainedResult();
+        return sustained == null ? 0.0 : sustained.targetRate();
+    }
+
+    /**
+     * @return the result at {@link #saturationRate()}, or null if even the lowest rate saturated
+     */
+    public RateResult sustainedResult() {
+        RateResult sustained = null;
+        for (RateResult r : results) {
+            if (isSaturated(r))
+                break;
+            sustained = r;
+        }
+        return sustained;
+    }
+
+    private boolean batched() {
+        for (RateResult r : results) {
+            if (!Double.isNaN(r.averageBatchSize()))
+                return true;
+        }
+        return false;
+    }
+
+    public String toString() {
+        DecimalFormat df = new DecimalFormat("#.##");
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(String.format("%28s %45s\n", "Name", name));
+        sb.append(String.format("%28s %45s\n", "Description", description));
+        if (sloMillis > 0)
+            sb.append(String.format("%28s %45s\n", "p99 SLO (ms)", df.format(sloMillis)));
+        sb.append(String.format("%28s %45s\n", "Max Sustained Requests/sec", df.format(saturationRate())));
+
+        boolean batched = batched();
+        sb.append("\n");
+        sb.append(String.format("%10s %10s %12s %10s %10s %10s %10s %10s %12s",
+                "Target/s", "Achieved/s", "Service p50", "p50 (ms)", "p90", "p99", "p99.9", "max", "Saturated"));
+        sb.append(batched ? String.format(" %10s\n", "Avg batch") : "\n");
+        for (RateResult r : results) {
+            LatencyHistogram h = r.latency();
+            sb.append(String.format("%10s %10s %12s %10s %10s %10s %10s %10s %12s",
+                    df.format(r.targetRate()),
+                    df.format(r.achievedRate()),
+                    df.format(r.serviceTime().getValueAtPercentile(50.0) / 1e6),
+                    df.format(h.getValueAtPercentile(50.0) / 1e6),
+                    df.format(h.getValueAtPercentile(90.0) / 1e6),
+                    df.format(h.getValueAtPercentile(99.0) / 1e6),
+                    df.format(h.getValueAtPercentile(99.9) / 1e6),
+                    df.format(h.getMax() / 1e6),
+                    isSaturated(r) ? "yes" : "no"));
+            sb.append(batched ? String.format(" %10s\n", df.format(r.averageBatchSize())) : "\n");
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,42 @@
+package org.deeplearning4j.listeners;
+
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.optimize.api.IterationListener;
+
+/**
+ * Samples heap, off-heap, RSS and workspace memory into the report every {@code frequency} iterations. A sample
+ * reads /proc and every workspace, so BenchmarkListener subtracts the time it took from the iteration time.
+ *
+ * @author kepricon
+ */
+public class MemoryListener implements IterationListener {
+
+    private final BenchmarkReport benchmarkReport;
+    private final int frequency;
+
+    /**
+     * @param frequency sample every this many iterations
+     */
+    public MemoryListener(BenchmarkReport benchmarkReport, int frequency) {
+        if (frequency < 1)
+            throw new IllegalArgumentException("Sample frequency must be at least 1, got " + frequency);
+        this.benchmarkReport = benchmarkReport;
+        this.frequency = frequency;
+    }
+
+    @Override
+    public boolean invoked() {
+        return false;
+    }
+
+    @Override
+    public void invoke() {
+
+    }
+
+    @Override
+    public void iterationDone(Model model, int iteration) {
+        if (iteration % frequency == 0)
+            benchmarkReport.memory().sample();
+    }
+}
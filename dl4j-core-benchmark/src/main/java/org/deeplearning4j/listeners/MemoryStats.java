@@ -0,0 +1,171 @@
+package org.deeplearning4j.listeners;
+
+import org.bytedeco.javacpp.Pointer;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.memory.MemoryWorkspaceManager;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.memory.abstracts.Nd4jWorkspace;
+
+import java.text.DecimalFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Memory samples taken every few iterations (see MemoryListener): JVM heap, off-heap bytes tracked by JavaCPP (where ND4J allocates
+ * its native buffers), process RSS, and size/spilled bytes/cycles of every DL4J training workspace that
+ * exists on the sampling thread.
+ *
+ * Each metric keeps its peak and a steady-state value, the mean of the most recent {@link #WINDOW} samples.
+ *
+ * @author kepricon
+ */
+public class MemoryStats {
+    public static final int WINDOW = 20;
+
+    /** workspace ids used by MultiLayerNetwork and ComputationGraph during training and inference */
+    public static final String[] WORKSPACES = {"LOOP_EXTERNAL", "LOOP_FF", "LOOP_BP", "LOOP_TBPTT", "LOOP_LSTM", "LOOP_CACHE"};
+
+    public static class Metric {
+        private final long[] window = new long[WINDOW];
+        private long count = 0;
+        private long peak = 0;
+        private long last = 0;
+
+        public void record(long value) {
+            window[(int) (count % WINDOW)] = value;
+            count++;
+            last = value;
+            if (value > peak)
+                peak = value;
+        }
+
+        public void reset() {
+            count = 0;
+            peak = 0;
+            last = 0;
+        }
+
+        public long peak() { return peak; }
+
+        public long last() { return last; }
+
+        public long count() { return count; }
+
+        public double steadyState() {
+            int n = (int) Math.min(count, WINDOW);
+            if (n == 0)
+                return 0.0;
+            double sum = 0.0;
+            for (int i = 0; i < n; i++)
+                sum += window[i];
+            return sum / n;
+        }
+    }
+
+    public static class WorkspaceMetrics {
+        private final Metric size = new Metric();
+        private final Metric spilled = new Metric();
+        private long cycles;
+
+        public Metric size() { return size; }
+
+        public Metric spilled() { return spilled; }
+
+        public long cycles() { return cycles; }
+    }
+
+    private final Metric heap = new Metric();
+    private final Metric offHeap = new Metric();
+    private final Metric rss = new Metric();
+    private final Map<String, WorkspaceMetrics> workspaces = new LinkedHashMap<>();
+    private final ThreadLocal<long[]> samplingNanos = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    /**
+     * Take one sample. Workspaces are thread local, so call this from the training thread.
+     */
+    public void sample() {
+        long start = System.nanoTime();
+        record();
+        samplingNanos.get()[0] += System.nanoTime() - start;
+    }
+
+    /**
+     * @return time the calling thread spent in {@link #sample()} since the last call, so BenchmarkListener can keep
+     * it out of the iteration time
+     */
+    public long takeSamplingNanos() {
+        long[] nanos = samplingNanos.get();
+        long out = nanos[0];
+        nanos[0] = 0;
+        return out;
+    }
+
+    private synchronized void record() {
+        Runtime rt = Runtime.getRuntime();
+        heap.record(rt.totalMemory() - rt.freeMemory());
+        offHeap.record(Pointer.totalBytes());
+        rss.record(Pointer.physicalBytes());
+
+        MemoryWorkspaceManager manager = Nd4j.getWorkspaceManager();
+        for (String id : WORKSPACES) {
+            if (!manager.checkIfWorkspaceExists(id))
+                continue;
+            MemoryWorkspace ws = manager.getWorkspaceForCurrentThread(id);
+
+            WorkspaceMetrics metrics = workspaces.get(id);
+            if (metrics == null) {
+                metrics = new WorkspaceMetrics();
+                workspaces.put(id, metrics);
+            }
+            metrics.size.record(ws.getCurrentSize());
+            if (ws instanceof Nd4jWorkspace) {
+                metrics.spilled.record(((Nd4jWorkspace) ws).getSpilledSize());
+                metrics.cycles = ((Nd4jWorkspace) ws).getCyclesCount();
+            }
+        }
+    }
+
+    public synchronized void reset() {
+        heap.reset();
+        offHeap.reset();
+        rss.reset();
+        workspaces.clear();
+    }
+
+    public Metric heap() { return heap; }
+
+    public Metric offHeap() { return offHeap; }
+
+    public Metric rss() { return rss; }
+
+    public Map<String, WorkspaceMetrics> workspaces() { return workspaces; }
+
+    /**
+     * Append a "peak / steady state" table in MB.
+     */
+    public synchronized void appendTo(StringBuilder sb, DecimalFormat df) {
+        if (heap.count() == 0)
+            return;
+        sb.append(String.format("%28s %14s %14s %14s\n", "Memory (MB)", "peak", "steady", "cycles"));
+        appendRow(sb, df, "JVM heap", heap, "");
+        appendRow(sb, df, "Off-heap (JavaCPP)", offHeap, "");
+        appendRow(sb, df, "Process RSS", rss, "");
+        for (Map.Entry<String, WorkspaceMetrics> e : workspaces.entrySet()) {
+            appendRow(sb, df, "Workspace " + e.getKey(), e.getValue().size, String.valueOf(e.getValue().cycles));
+            if (e.getValue().spilled.peak() > 0)
+                appendRow(sb, df, "  spilled", e.getValue().spilled, "");
+        }
+    }
+
+    private static void appendRow(StringBuilder sb, DecimalFormat df, String name, Metric metric, String extra) {
+        sb.append(String.format("%28s %14s %14s %14s\n", name,
+                df.format(metric.peak() / (1024.0 * 1024.0)),
+                df.format(metric.steadyState() / (1024.0 * 1024.0)),
+                extra));
+    }
+}
@@ -0,0 +1,120 @@
+package org.deeplearning4j.listeners;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reporting for ParallelWrapper configuration sweeps: one row per configuration with throughput, the cost of
+ * each averaging round and the loss reached after the same number of samples.
+ *
+ * @author kepricon
+ */
+public class ParallelWrapperReport {
+
+    private final String name;
+    private final String description;
+    private final List<ConfigResult> results = new ArrayList<>();
+
+    public ParallelWrapperReport(String name, String description) {
+        this.name = name;
+        this.description = description;
+    }
+
+    public static class ConfigResult {
+        private final int workers;
+        private final int averagingFrequency;
+        private final int prefetchBuffer;
+        private final boolean averageUpdaters;
+        private final boolean legacyAveraging;
+        private final long samples;
+        private final long totalNanos;
+        private final long referenceNanos;
+        private final long rounds;
+        private final double finalLoss;
+
+        /**
+         * @param referenceNanos time of the same workers/prefetch configuration without averaging
+         * @param rounds         number of averaging rounds performed
+         */
+        public ConfigResult(int workers, int averagingFrequency, int prefetchBuffer, boolean averageUpdaters, boolean legacyAveraging,
+                            long samples, long totalNanos, long referenceNanos, long rounds, double finalLoss) {
+            this.workers = workers;
+            this.averagingFrequency = averagingFrequency;
+            this.prefetchBuffer = prefetchBuffer;
+            this.averageUpdaters = averageUpdaters;
+            this.legacyAveraging = legacyAveraging;
+            this.samples = samples;
+            this.totalNanos = totalNanos;
+            this.referenceNanos = referenceNanos;
+            this.rounds = rounds;
+            this.finalLoss = finalLoss;
+        }
+
+        public double samplesPerSec() { return totalNanos == 0 ? 0.0 : samples / (totalNanos / 1e9); }
+
+        /**
+         * @return extra wall time per averaging round compared to training without averaging, in milliseconds; not
+         * clamped, so a negative value shows the overhead is within run-to-run noise
+         */
+        public double overheadPerRoundMillis() {
+            return rounds == 0 ? 0.0 : (totalNanos - referenceNanos) / 1e6 / rounds;
+        }
+
+        public double finalLoss() { return finalLoss; }
+    }
+
+    public void addResult(ConfigResult result) {
+        results.add(result);
+    }
+
+    public List<ConfigResult> results() { return results; }
+
+    /**
+     * @return the configuration with the highest throughput, or null if nothing has been recorded
+     */
+    public ConfigResult fastest() {
+        ConfigResult best = null;
+        for (ConfigResult r : results) {
+            if (best == null || r.samplesPerSec() > best.samplesPerSec())
+                best = r;
+        }
+        return best;
+    }
+
+    public String toString() {
+        DecimalFormat df = new DecimalFormat("#.####");
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(String.format("%28s %45s\n", "Name", name));
+        sb.append(String.format("%28s %45s\n", "Description", description));
+        ConfigResult best = fastest();
+        if (best != null) {
+            sb.append(String.format("%28s %45s\n", "Fastest Configuration", describe(best)));
+            sb.append(String.format("%28s %45s\n", "Fastest Samples/sec", df.format(best.samplesPerSec())));
+        }
+
+        sb.append("\n");
+        sb.append(String.format("%8s %8s %9s %9s %8s %12s %8s %16s %12s\n",
+                "Workers", "AvgFreq", "Prefetch", "AvgUpd", "Legacy", "Samples/sec", "Rounds", "ms/round (over)", "Final loss"));
+        for (ConfigResult r : results) {
+            sb.append(String.format("%8s %8s %9s %9s %8s %12s %8s %16s %12s\n",
+                    String.valueOf(r.workers),
+                    String.valueOf(r.averagingFrequency),
+                    String.valueOf(r.prefetchBuffer),
+                    String.valueOf(r.averageUpdaters),
+                    String.valueOf(r.legacyAveraging),
+                    df.format(r.samplesPerSec()),
+                    String.valueOf(r.rounds),
+                    df.format(r.overheadPerRoundMillis()),
+                    df.format(r.finalLoss)));
+        }
+
+        return sb.toString();
+    }
+
+    private static String describe(ConfigResult r) {
+        return "workers=" + r.workers + " avg=" + r.averagingFrequency + " prefetch=" + r.prefetchBuffer
+                + (r.averageUpdaters ? " avgUpdaters" : "") + (r.legacyAveraging ? " legacy" : "");
+    }
+}
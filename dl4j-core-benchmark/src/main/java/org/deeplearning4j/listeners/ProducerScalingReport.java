@@ -0,0 +1,70 @@
+package org.deeplearning4j.listeners;
+
+import java.text.DecimalFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reporting for producer-count sweeps: training throughput and ETL stall % of one model at each number of threads
+ * building its minibatches. The model is input-bound while the training loop spends a noticeable share of its time
+ * waiting for the next minibatch; beyond the producer count where that stops, more producers buy nothing.
+ *
+ * @author kepricon
+ */
+public class ProducerScalingReport {
+
+    private final String name;
+    private final String description;
+    private final double maxStallPercent;
+    private final TreeMap<Integer, double[]> results = new TreeMap<>();
+
+    /**
+     * @param maxStallPercent ETL stall % at or below which the model is considered no longer input-bound
+     */
+    public ProducerScalingReport(String name, String description, double maxStallPercent) {
+        this.name = name;
+        this.description = description;
+        this.maxStallPercent = maxStallPercent;
+    }
+
+    public void addResult(int producers, double samplesSec, double stallPercent) {
+        results.put(producers, new double[]{samplesSec, stallPercent});
+    }
+
+    public String name() { return name; }
+
+    /**
+     * @return the smallest producer count with an ETL stall % of at most maxStallPercent, or 0 if the model was
+     * input-bound at every count measured
+     */
+    public int inputBoundLimit() {
+        for (Map.Entry<Integer, double[]> e : results.entrySet()) {
+            if (e.getValue()[1] <= maxStallPercent)
+                return e.getKey();
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        DecimalFormat df = new DecimalFormat("#.##");
+        StringBuilder sb = new StringBuilder();
+
+        int limit = inputBoundLimit();
+        sb.append(String.format("%28s %45s\n", "Name", name));
+        sb.append(String.format("%28s %45s\n", "Description", description));
+        sb.append(String.format("%28s %45s\n", "Not Input-Bound From",
+                limit == 0 ? "input-bound at every count" : limit + " producer(s)"));
+
+        sb.append("\n");
+        sb.append(String.format("%10s %12s %12s\n", "Producers", "Samples/sec", "ETL Stall %"));
+        for (Map.Entry<Integer, double[]> e : results.entrySet()) {
+            sb.append(String.format("%10s %12s %12s\n",
+                    String.valueOf(e.getKey()),
+                    df.format(e.getValue()[0]),
+                    df.format(e.getValue()[1])));
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package org.deeplearning4j.listeners;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.shade.jackson.databind.ObjectMapper;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Appends benchmark results as JSON lines (one object per model and run) to a results directory, so runs
+ * can be compared across DL4J versions with BenchmarkCompare.
+ *
+ * Each run writes its own file, {@code <runId>.jsonl}, where runId is the start time of the JVM. Every record
+ * holds the BenchmarkReport metrics plus the environment: JVM flags, thread settings and library versions.
+ *
+ * @author kepricon
+ */
+@Slf4j
+public class ResultsStore {
+    public static final String EXTENSION = ".jsonl";
+    public static final String DEFAULT_DIR = "benchmark-results";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final File file;
+    private final String runId;
+
+    public ResultsStore(File directory) {
+        if (!directory.exists() && !directory.mkdirs())
+            throw new IllegalStateException("Could not create results directory " + directory.getAbsolutePath());
+        this.runId = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(ManagementFactory.getRuntimeMXBean().getStartTime()));
+        this.file = new File(directory, runId + EXTENSION);
+    }
+
+    public File file() { return file; }
+
+    /**
+     * Append one report, together with the environment it ran in.
+     */
+    public synchronized void append(BenchmarkReport report) throws IOException {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("runId", runId);
+        record.put("timestamp", System.currentTimeMillis());
+        record.putAll(environment());
+        record.putAll(report.toRecord());
+
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            w.write(MAPPER.writeValueAsString(record));
+            w.write('\n');
+        }
+        log.info("Results appended to " + file.getAbsolutePath());
+    }
+
+    /**
+     * Thread settings, JVM flags and versions of the current process.
+     */
+    public static Map<String, Object> environment() {
+        Map<String, Object> env = new LinkedHashMap<>();
+        env.put("javaVersion", System.getProperty("java.version"));
+        env.put("jvmFlags", ManagementFactory.getRuntimeMXBean().getInputArguments());
+        env.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        env.put("ompNumThreads", System.getenv("OMP_NUM_THREADS"));
+        env.put("mklNumThreads", System.getenv("MKL_NUM_THREADS"));
+        env.put("openblasNumThreads", System.getenv("OPENBLAS_NUM_THREADS"));
+        env.put("dl4jVersion", MultiLayerNetwork.class.getPackage().getImplementationVersion());
+        env.put("nd4jVersion", Nd4j.class.getPackage().getImplementationVersion());
+        env.put("gitRevision", gitRevision());
+        return env;
+    }
+
+    private static String gitRevision() {
+        try {
+            Process p = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+                String line = r.readLine();
+                return p.waitFor() == 0 ? line : null;
+            }
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read all records from a results file, or from every results file in a directory (in file name order).
+     */
+    public static List<Map<String, Object>> read(File fileOrDirectory) throws IOException {
+        List<File> files = new ArrayList<>();
+        if (fileOrDirectory.isDirectory()) {
+            File[] listed = fileOrDirectory.listFiles();
+            if (listed != null) {
+                for (File f : listed)
+                    if (f.getName().endsWith(EXTENSION))
+                        files.add(f);
+            }
+            Collections.sort(files);
+        } else {
+            files.add(fileOrDirectory);
+        }
+
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (File f : files) {
+            try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    if (line.trim().isEmpty())
+                        continue;
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> record = MAPPER.readValue(line, LinkedHashMap.class);
+                    records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+}
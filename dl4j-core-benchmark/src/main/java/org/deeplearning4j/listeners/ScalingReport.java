@@ -0,0 +1,81 @@
+package org.deeplearning4j.listeners;
+
+import java.text.DecimalFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reporting for thread-scaling sweeps: throughput of one model at each native thread count, with speedup and
+ * parallel efficiency relative to the smallest thread count measured.
+ *
+ * @author kepricon
+ */
+public class ScalingReport {
+
+    private final String name;
+    private final String description;
+    private final double minEfficiency;
+    private final TreeMap<Integer, Double> samplesPerSec = new TreeMap<>();
+
+    /**
+     * @param minEfficiency parallel efficiency below which the model is considered to have stopped scaling
+     */
+    public ScalingReport(String name, String description, double minEfficiency) {
+        this.name = name;
+        this.description = description;
+        this.minEfficiency = minEfficiency;
+    }
+
+    public void addResult(int threads, double samplesSec) {
+        samplesPerSec.put(threads, samplesSec);
+    }
+
+    public String name() { return name; }
+
+    public double speedup(int threads) {
+        if (samplesPerSec.isEmpty() || !samplesPerSec.containsKey(threads))
+            return 0.0;
+        double base = samplesPerSec.firstEntry().getValue();
+        return base == 0 ? 0.0 : samplesPerSec.get(threads) / base;
+    }
+
+    public double efficiency(int threads) {
+        if (samplesPerSec.isEmpty())
+            return 0.0;
+        return speedup(threads) / ((double) threads / samplesPerSec.firstKey());
+    }
+
+    /**
+     * @return the largest thread count whose efficiency, and that of every smaller count, stays above minEfficiency
+     */
+    public int scalingLimit() {
+        int limit = 0;
+        for (int threads : samplesPerSec.keySet()) {
+            if (efficiency(threads) < minEfficiency)
+                break;
+            limit = threads;
+        }
+        return limit;
+    }
+
+    public String toString() {
+        DecimalFormat df = new DecimalFormat("#.##");
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(String.format("%28s %45s\n", "Name", name));
+        sb.append(String.format("%28s %45s\n", "Description", description));
+        sb.append(String.format("%28s %45s\n", "Scales Up To (threads)", String.valueOf(scalingLimit())));
+
+        sb.append("\n");
+        sb.append(String.format("%10s %12s %10s %12s\n", "Threads", "Samples/sec", "Speedup", "Efficiency"));
+        for (Map.Entry<Integer, Double> e : samplesPerSec.entrySet()) {
+            sb.append(String.format("%10s %12s %10s %12s\n",
+                    String.valueOf(e.getKey()),
+                    df.format(e.getValue()),
+                    df.format(speedup(e.getKey())),
+                    df.format(efficiency(e.getKey()))));
+        }
+
+        return sb.toString();
+    }
+}
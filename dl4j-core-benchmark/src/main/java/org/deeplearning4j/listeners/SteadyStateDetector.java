@@ -0,0 +1,98 @@
+package org.deeplearning4j.listeners;
+
+/**
+ * Detects the end of warmup by watching a sliding window of iteration times.
+ *
+ * Warmup (JIT compilation, workspace growth, BLAS thread spin-up) is considered finished once the coefficient of
+ * variation (stddev / mean) of the last {@code window} iteration times drops below {@code cvThreshold}. If that
+ * never happens within {@code maxIterations} samples, detection gives up and reports steady state anyway so that
+ * the benchmark still records results.
+ *
+ * Instances are not thread safe; BenchmarkListener keeps one per training thread.
+ *
+ * @author kepricon
+ */
+public class SteadyStateDetector {
+    public static final int DEFAULT_WINDOW = 10;
+    public static final double DEFAULT_CV_THRESHOLD = 0.1;
+    public static final int DEFAULT_MAX_ITERATIONS = 200;
+
+    private final int window;
+    private final double cvThreshold;
+    private final int maxIterations;
+    private final long[] samples;
+
+    private long count = 0;
+    private long warmupNanos = 0;
+    private boolean steady = false;
+    private boolean converged = false;
+    private double lastCV = Double.NaN;
+
+    public SteadyStateDetector() {
+        this(DEFAULT_WINDOW, DEFAULT_CV_THRESHOLD, DEFAULT_MAX_ITERATIONS);
+    }
+
+    public SteadyStateDetector(int window, double cvThreshold, int maxIterations) {
+        if (window < 2)
+            throw new IllegalArgumentException("Warmup window must be at least 2 iterations, got " + window);
+        this.window = window;
+        this.cvThreshold = cvThreshold;
+        this.maxIterations = Math.max(maxIterations, window);
+        this.samples = new long[window];
+    }
+
+    /**
+     * Feed the duration of one warmup iteration.
+     *
+     * @return true if this sample completed the warmup phase
+     */
+    public boolean update(long iterationNanos) {
+        if (steady)
+            return false;
+
+        samples[(int) (count % window)] = iterationNanos;
+        count++;
+        warmupNanos += iterationNanos;
+
+        if (count >= window) {
+            lastCV = coefficientOfVariation();
+            if (lastCV <= cvThreshold) {
+                steady = true;
+                converged = true;
+            }
+        }
+        if (!steady && count >= maxIterations)
+            steady = true;
+
+        return steady;
+    }
+
+    private double coefficientOfVariation() {
+        double mean = 0.0;
+        for (int i = 0; i < window; i++)
+            mean += samples[i];
+        mean /= window;
+        if (mean <= 0.0)
+            return Double.POSITIVE_INFINITY;
+
+        double var = 0.0;
+        for (int i = 0; i < window; i++) {
+            double d = samples[i] - mean;
+            var += d * d;
+        }
+        var /= (window - 1);
+        return Math.sqrt(var) / mean;
+    }
+
+    public boolean isSteady() { return steady; }
+
+    /** @return true if steady state was detected, false if detection gave up after maxIterations */
+    public boolean isConverged() { return converged; }
+
+    /** @return number of iterations discarded as warmup */
+    public long getWarmupIterations() { return count; }
+
+    public long getWarmupNanos() { return warmupNanos; }
+
+    public double getLastCV() { return lastCV; }
+}
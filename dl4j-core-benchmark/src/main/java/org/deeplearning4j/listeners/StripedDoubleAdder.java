@@ -0,0 +1,49 @@
+package org.deeplearning4j.listeners;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free double sum for updates from many worker threads; the double counterpart of {@link StripedLongAdder}.
+ * Each stripe holds the raw bits of a double and is updated with a compare-and-set loop.
+ *
+ * @author kepricon
+ */
+public class StripedDoubleAdder {
+    private final int mask;
+    private final AtomicLongArray cells;
+
+    public StripedDoubleAdder() {
+        this(StripedLongAdder.defaultStripes());
+    }
+
+    /**
+     * @param stripes number of stripes, rounded up to a power of two
+     */
+    public StripedDoubleAdder(int stripes) {
+        int n = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.mask = n - 1;
+        this.cells = new AtomicLongArray(n * StripedLongAdder.PADDING);
+        reset();
+    }
+
+    public void add(double x) {
+        int i = StripedLongAdder.stripe(mask) * StripedLongAdder.PADDING;
+        long current;
+        do {
+            current = cells.get(i);
+        } while (!cells.compareAndSet(i, current, Double.doubleToRawLongBits(Double.longBitsToDouble(current) + x)));
+    }
+
+    public double sum() {
+        double sum = 0.0;
+        for (int i = 0; i < cells.length(); i += StripedLongAdder.PADDING)
+            sum += Double.longBitsToDouble(cells.get(i));
+        return sum;
+    }
+
+    public void reset() {
+        long zero = Double.doubleToRawLongBits(0.0);
+        for (int i = 0; i < cells.length(); i += StripedLongAdder.PADDING)
+            cells.set(i, zero);
+    }
+}
@@ -0,0 +1,63 @@
+package org.deeplearning4j.listeners;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counter for updates from many worker threads, in the spirit of Java 8's LongAdder.
+ *
+ * Every thread adds into one of several stripes chosen by its thread id; stripes sit on separate cache lines so
+ * workers do not contend on the same atomic. {@link #sum()} merges the stripes and is meant for reporting, not
+ * for the hot path.
+ *
+ * @author kepricon
+ */
+public class StripedLongAdder {
+    // longs per stripe, so neighbouring stripes never share a 64 byte cache line
+    static final int PADDING = 8;
+
+    private final int mask;
+    private final AtomicLongArray cells;
+
+    public StripedLongAdder() {
+        this(defaultStripes());
+    }
+
+    /**
+     * @param stripes number of stripes, rounded up to a power of two
+     */
+    public StripedLongAdder(int stripes) {
+        int n = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.mask = n - 1;
+        this.cells = new AtomicLongArray(n * PADDING);
+    }
+
+    static int defaultStripes() {
+        return Math.min(64, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    static int stripe(int mask) {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public void add(long x) {
+        cells.addAndGet(stripe(mask) * PADDING, x);
+    }
+
+    public void increment() {
+        add(1L);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i += PADDING)
+            sum += cells.get(i);
+        return sum;
+    }
+
+    public void reset() {
+        for (int i = 0; i < cells.length(); i += PADDING)
+            cells.set(i, 0);
+    }
+}
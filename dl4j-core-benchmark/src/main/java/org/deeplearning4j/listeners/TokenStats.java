@@ -0,0 +1,69 @@
+package org.deeplearning4j.listeners;
+
+import java.text.DecimalFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Real vs. padded time steps of the variable-length minibatches a run trained on. Padding is masked out, so it is
+ * compute the network spends without learning anything: effective tokens/sec counts only the real time steps.
+ *
+ * @author kepricon
+ */
+public class TokenStats {
+
+    private final AtomicLong realTokens = new AtomicLong(0);
+    private final AtomicLong paddedTokens = new AtomicLong(0);
+    private final AtomicLong batches = new AtomicLong(0);
+
+    /**
+     * @param real   time steps holding a word, over the whole minibatch
+     * @param padded time steps of the minibatch including padding, i.e. examples x longest example
+     */
+    public void record(long real, long padded) {
+        realTokens.addAndGet(real);
+        paddedTokens.addAndGet(padded);
+        batches.incrementAndGet();
+    }
+
+    public void reset() {
+        realTokens.set(0);
+        paddedTokens.set(0);
+        batches.set(0);
+    }
+
+    /**
+     * @return a copy that later minibatches (e.g. of the forward/backward timing pass) do not change
+     */
+    public TokenStats snapshot() {
+        TokenStats copy = new TokenStats();
+        copy.record(realTokens.get(), paddedTokens.get());
+        copy.batches.set(batches.get());
+        return copy;
+    }
+
+    public long realTokens() { return realTokens.get(); }
+
+    public long paddedTokens() { return paddedTokens.get(); }
+
+    public long batches() { return batches.get(); }
+
+    /**
+     * @return share of time steps that are padding
+     */
+    public double paddingRatio() {
+        long padded = paddedTokens.get();
+        return padded == 0 ? 0.0 : 1.0 - (double) realTokens.get() / padded;
+    }
+
+    public double effectiveTokensPerSec(long millis) {
+        return millis <= 0 ? 0.0 : realTokens.get() / (millis / 1000.0);
+    }
+
+    public void appendTo(StringBuilder sb, DecimalFormat df, long millis) {
+        if (batches.get() == 0)
+            return;
+        sb.append(String.format("%28s %45s\n", "Padding Ratio %", df.format(100.0 * paddingRatio())));
+        sb.append(String.format("%28s %45s\n", "Real / Padded Time Steps", realTokens.get() + " / " + paddedTokens.get()));
+        sb.append(String.format("%28s %45s\n", "Effective Tokens/sec", df.format(effectiveTokensPerSec(millis))));
+    }
+}
@@ -5,6 +5,7 @@ import org.deeplearning4j.models.cnn.*;
 import org.deeplearning4j.models.cnn.VGG16;
 import org.deeplearning4j.models.mlp.SimpleMLP;
 import org.deeplearning4j.models.rnn.W2VSentiment;
+import org.deeplearning4j.models.rnn.W2VSentimentEmbedding;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -54,6 +55,9 @@ public class ModelSelector {
             case W2VSENTIMENT:
                 netmap.put(ModelType.W2VSENTIMENT, new W2VSentiment());
                 break;
+            case W2VSENTIMENT_EMBEDDING:
+                netmap.put(ModelType.W2VSENTIMENT_EMBEDDING, new W2VSentimentEmbedding(W2VSentimentEmbedding.SYNTHETIC_VOCAB_SIZE));
+                break;
             case SIMPLEMLP:
                 netmap.put(ModelType.SIMPLEMLP, new SimpleMLP(height, width, channels, numLabels, seed));
                 break;
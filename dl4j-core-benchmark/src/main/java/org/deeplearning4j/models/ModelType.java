@@ -14,5 +14,6 @@ public enum ModelType {
     LENET,
     RNN,
     W2VSENTIMENT,
+    W2VSENTIMENT_EMBEDDING,
     SIMPLEMLP
 }
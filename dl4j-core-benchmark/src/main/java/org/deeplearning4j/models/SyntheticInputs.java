@@ -0,0 +1,130 @@
+package org.deeplearning4j.models;
+
+import org.deeplearning4j.models.rnn.W2VSentiment;
+import org.deeplearning4j.models.rnn.W2VSentimentEmbedding;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.util.Random;
+
+/**
+ * Helper class for creating random inputs shaped for a single ModelType, so that models can be
+ * exercised without downloading or decoding a dataset.
+ *
+ * Shapes follow what the models in this project expect: LeNet uses flattened convolutional input,
+ * SimpleMLP takes height*width inputs, W2VSentiment takes [batch, 300, timeSteps] where height is
+ * used as the number of time steps, W2VSentimentEmbedding takes vocabulary indices [batch, 1, timeSteps],
+ * and all other CNNs take [batch, channels, height, width].
+ */
+public class SyntheticInputs {
+
+    private SyntheticInputs() {}
+
+    /**
+     * Default per-example input shape {channels, height, width} for a model type.
+     */
+    public static int[] defaultShape(ModelType modelType) {
+        switch (modelType) {
+            case LENET:
+            case SIMPLEMLP:
+                return new int[]{1, 28, 28};
+            case INCEPTIONRESNETV1:
+                return new int[]{3, 160, 160};
+            case FACENETNN4:
+                return new int[]{3, 96, 96};
+            case W2VSENTIMENT:
+            case W2VSENTIMENT_EMBEDDING:
+                return new int[]{1, 256, 1};
+            default:
+                return new int[]{3, 224, 224};
+        }
+    }
+
+    /**
+     * Parse a per-example shape. Accepts "CxHxW", "HxW" (single channel) or, for W2VSENTIMENT, the
+     * sequence length alone. "default" returns {@link #defaultShape(ModelType)}.
+     *
+     * @return {channels, height, width}
+     */
+    public static int[] parseShape(ModelType modelType, String shape) {
+        if (shape == null || shape.isEmpty() || shape.equalsIgnoreCase("default"))
+            return defaultShape(modelType);
+
+        String[] parts = shape.toLowerCase().split("x");
+        try {
+            switch (parts.length) {
+                case 1:
+                    return new int[]{1, Integer.parseInt(parts[0].trim()), 1};
+                case 2:
+                    return new int[]{1, Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())};
+                case 3:
+                    return new int[]{Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()), Integer.parseInt(parts[2].trim())};
+                default:
+                    throw new IllegalArgumentException("Invalid input shape: " + shape);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid input shape: " + shape, e);
+        }
+    }
+
+    public static int[] featureShape(ModelType modelType, int batchSize, int channels, int height, int width) {
+        switch (modelType) {
+            case ALL:
+            case CNN:
+            case RNN:
+                throw new IllegalArgumentException("Synthetic inputs need a single model type, got " + modelType);
+            case LENET:
+                return new int[]{batchSize, channels * height * width};
+            case SIMPLEMLP:
+                return new int[]{batchSize, height * width};
+            case W2VSENTIMENT:
+                return new int[]{batchSize, W2VSentiment.VECTOR_SIZE, height};
+            case W2VSENTIMENT_EMBEDDING:
+                return new int[]{batchSize, 1, height};
+            default:
+                return new int[]{batchSize, channels, height, width};
+        }
+    }
+
+    public static int[] labelShape(ModelType modelType, int batchSize, int height, int numLabels) {
+        if (isSentiment(modelType))
+            return new int[]{batchSize, W2VSentiment.NUM_LABELS, height};
+        return new int[]{batchSize, numLabels};
+    }
+
+    /**
+     * @return true for the W2VSentiment models, which take time series and predict one of W2VSentiment.NUM_LABELS
+     */
+    public static boolean isSentiment(ModelType modelType) {
+        return modelType == ModelType.W2VSENTIMENT || modelType == ModelType.W2VSENTIMENT_EMBEDDING;
+    }
+
+    /**
+     * Create a DataSet of uniformly random features (random vocabulary indices for W2VSENTIMENT_EMBEDDING) and
+     * random one-hot labels.
+     */
+    public static DataSet create(ModelType modelType, int batchSize, int channels, int height, int width, int numLabels, long seed) {
+        int[] featureShape = featureShape(modelType, batchSize, channels, height, width);
+        int[] labelShape = labelShape(modelType, batchSize, height, numLabels);
+
+        INDArray features = Nd4j.rand(featureShape, seed);
+        if (modelType == ModelType.W2VSENTIMENT_EMBEDDING)
+            features = Transforms.floor(features.muli(W2VSentimentEmbedding.SYNTHETIC_VOCAB_SIZE), false);
+        INDArray labels = Nd4j.zeros(labelShape);
+
+        Random rng = new Random(seed);
+        for (int i = 0; i < batchSize; i++) {
+            int label = rng.nextInt(labelShape[1]);
+            if (labelShape.length == 3) {
+                for (int t = 0; t < labelShape[2]; t++)
+                    labels.putScalar(new int[]{i, label, t}, 1.0);
+            } else {
+                labels.putScalar(i, label, 1.0);
+            }
+        }
+
+        return new DataSet(features, labels);
+    }
+}
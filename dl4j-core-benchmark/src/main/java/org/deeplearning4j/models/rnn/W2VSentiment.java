@@ -32,7 +32,10 @@ import org.nd4j.linalg.lossfunctions.LossFunctions;
  */
 public class W2VSentiment implements TestableModel {
 
-    private int vectorSize = 300;   //Size of the word vectors. 300 in the Google News model
+    public static final int VECTOR_SIZE = 300;   //Size of the word vectors. 300 in the Google News model
+    public static final int NUM_LABELS = 2;      //Positive or negative
+
+    private int vectorSize = VECTOR_SIZE;
 
     public W2VSentiment(){
 
@@ -49,7 +52,7 @@ public class W2VSentiment implements TestableModel {
                 .layer(0, new GravesLSTM.Builder().nIn(vectorSize).nOut(256)
                         .activation(Activation.TANH).build())
                 .layer(1, new RnnOutputLayer.Builder().activation(Activation.SOFTMAX)
-                        .lossFunction(LossFunctions.LossFunction.MCXENT).nIn(256).nOut(2).build())
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).nIn(256).nOut(NUM_LABELS).build())
                 .pretrain(false).backprop(true).build();
 
         MultiLayerNetwork net = new MultiLayerNetwork(conf);
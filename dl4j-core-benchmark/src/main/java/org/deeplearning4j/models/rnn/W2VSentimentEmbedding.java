@@ -0,0 +1,85 @@
+package org.deeplearning4j.models.rnn;
+
+import org.deeplearning4j.models.TestableModel;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.GradientNormalization;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.Updater;
+import org.deeplearning4j.nn.conf.layers.EmbeddingLayer;
+import org.deeplearning4j.nn.conf.layers.GravesLSTM;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.conf.preprocessor.FeedForwardToRnnPreProcessor;
+import org.deeplearning4j.nn.conf.preprocessor.RnnToFeedForwardPreProcessor;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.deeplearning4j.nn.transferlearning.TransferLearning;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+/**
+ * W2VSentiment with the word vector lookup inside the network: inputs are vocabulary indices [batch, 1, timeSteps]
+ * (see SentimentExampleIterator#setIndexInputs) instead of [batch, 300, timeSteps] vectors, and a frozen
+ * EmbeddingLayer initialized from the word vectors turns them into the same LSTM input. The iterator and the
+ * prefetch queue move 300x less data per minibatch.
+ *
+ * The embedding layer is frozen through TransferLearning, so it computes no gradient and holds no updater state.
+ *
+ * @author kepricon
+ */
+public class W2VSentimentEmbedding implements TestableModel {
+
+    /** Vocabulary size of the randomly initialized embeddings used with synthetic inputs */
+    public static final int SYNTHETIC_VOCAB_SIZE = 100000;
+
+    private final int vocabSize;
+    private final int vectorSize = W2VSentiment.VECTOR_SIZE;
+    private final INDArray embeddings;
+
+    /**
+     * @param embeddings [vocabSize, 300] word vectors, row i for input index i
+     */
+    public W2VSentimentEmbedding(INDArray embeddings) {
+        this.vocabSize = embeddings.rows();
+        this.embeddings = embeddings;
+    }
+
+    /**
+     * Randomly initialized embeddings, for synthetic inputs.
+     */
+    public W2VSentimentEmbedding(int vocabSize) {
+        this.vocabSize = vocabSize;
+        this.embeddings = null;
+    }
+
+    public MultiLayerConfiguration conf() {
+        return new NeuralNetConfiguration.Builder()
+                .updater(Updater.ADAM).adamMeanDecay(0.9).adamVarDecay(0.999)
+                .regularization(true).l2(1e-5)
+                .weightInit(WeightInit.XAVIER)
+                .gradientNormalization(GradientNormalization.ClipElementWiseAbsoluteValue).gradientNormalizationThreshold(1.0)
+                .learningRate(2e-2)
+                .list()
+                .layer(0, new EmbeddingLayer.Builder().nIn(vocabSize).nOut(vectorSize)
+                        .activation(Activation.IDENTITY).build())
+                .layer(1, new GravesLSTM.Builder().nIn(vectorSize).nOut(256)
+                        .activation(Activation.TANH).build())
+                .layer(2, new RnnOutputLayer.Builder().activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).nIn(256).nOut(W2VSentiment.NUM_LABELS).build())
+                // the embedding looks up one index per row: flatten time steps into the minibatch and back
+                .inputPreProcessor(0, new RnnToFeedForwardPreProcessor())
+                .inputPreProcessor(1, new FeedForwardToRnnPreProcessor())
+                .pretrain(false).backprop(true).build();
+    }
+
+    @Override
+    public Model init() {
+        MultiLayerNetwork network = new MultiLayerNetwork(conf());
+        network.init();
+        if (embeddings != null)
+            network.getLayer(0).setParam(DefaultParamInitializer.WEIGHT_KEY, embeddings);
+        return new TransferLearning.Builder(network).setFeatureExtractor(0).build();
+    }
+}
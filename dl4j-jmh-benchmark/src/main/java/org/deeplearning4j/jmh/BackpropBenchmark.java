@@ -0,0 +1,35 @@
+package org.deeplearning4j.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-batch backward pass. The forward pass that backprop depends on runs in an untimed
+ * per-invocation setup; both run outside workspaces so the activations stay valid between the two.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BackpropBenchmark extends ModelState {
+
+    @Setup(Level.Invocation)
+    public void forward() {
+        runFeedForward();
+    }
+
+    @Benchmark
+    public void backprop() {
+        runBackprop();
+    }
+}
@@ -0,0 +1,99 @@
+package org.deeplearning4j.jmh;
+
+import org.deeplearning4j.benchmarks.TrainingPhases;
+import org.deeplearning4j.models.ModelSelector;
+import org.deeplearning4j.models.ModelType;
+import org.deeplearning4j.models.SyntheticInputs;
+import org.deeplearning4j.models.TestableModel;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Map;
+
+/**
+ * Shared JMH state: builds one TestableModel from ModelSelector and a pre-allocated synthetic
+ * batch for it once per trial. Every fork gets a fresh JVM, so native memory and workspaces of
+ * one model never leak into the measurements of the next.
+ *
+ * Parameters can be overridden on the command line, e.g.
+ * {@code java -jar dl4j-jmh-benchmark.jar -p modelType=VGG16 -p batchSize=16 -p inputShape=3x224x224}
+ */
+@State(Scope.Benchmark)
+public abstract class ModelState {
+
+    @Param({"LENET", "SIMPLEMLP", "ALEXNET", "VGG16", "GOOGLELENET", "INCEPTIONRESNETV1", "FACENETNN4", "W2VSENTIMENT"})
+    public ModelType modelType;
+
+    @Param({"32"})
+    public int batchSize;
+
+    /** "CxHxW", or "default" for the model's usual input size (sequence length for W2VSENTIMENT) */
+    @Param({"default"})
+    public String inputShape;
+
+    @Param({"10"})
+    public int numLabels;
+
+    protected int seed = 42;
+
+    protected Model model;
+    protected DataSet data;
+    protected INDArray features;
+    protected INDArray labels;
+    protected TrainingPhases phases;
+
+    @Setup(Level.Trial)
+    public void setupModel() throws Exception {
+        Nd4j.create(1);
+        Nd4j.getMemoryManager().togglePeriodicGc(false);
+
+        int[] shape = SyntheticInputs.parseShape(modelType, inputShape);
+        int channels = shape[0];
+        int height = shape[1];
+        int width = shape[2];
+
+        Map<ModelType, TestableModel> networks = ModelSelector.select(modelType, height, width, channels, numLabels, seed, 1);
+        model = networks.get(modelType).init();
+
+        data = SyntheticInputs.create(modelType, batchSize, channels, height, width, numLabels, seed);
+        features = data.getFeatures();
+        labels = data.getLabels();
+
+        phases = new TrainingPhases(model);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownModel() {
+        model = null;
+        data = null;
+        features = null;
+        labels = null;
+        phases = null;
+    }
+
+    protected Object runFeedForward() {
+        return phases.forward(features, labels);
+    }
+
+    protected void runBackprop() {
+        phases.backward();
+    }
+
+    protected void runFit() {
+        if (model instanceof MultiLayerNetwork) {
+            ((MultiLayerNetwork) model).fit(data);
+        } else {
+            ((ComputationGraph) model).fit(data);
+        }
+    }
+}